@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import android.test.AndroidTestCase;
+import android.util.SparseArray;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+/**
+ * 断点记录日志的恢复、截断和压缩测试；日志使用SparseArray，需要在设备上运行
+ */
+public class CheckpointJournalTest extends AndroidTestCase {
+  /**
+   * 在调用线程中直接写入，方便检查异步记录的结果
+   */
+  private static final Executor DIRECT = new Executor() {
+    @Override public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  private File mFile;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    mFile = new File(getContext().getCacheDir(), "journal_test.cfg");
+    mFile.delete();
+  }
+
+  @Override protected void tearDown() throws Exception {
+    mFile.delete();
+    super.tearDown();
+  }
+
+  public void testLoadRestoresSegments() throws Exception {
+    CheckpointJournal journal = create();
+    journal.load();
+    journal.writeSegment(0, 0, 100);
+    journal.writeSegment(1, 100, 200);
+    journal.writeRecord(0, 40);
+    journal.writeComplete(1);
+    journal.close();
+
+    SparseArray<CheckpointJournal.Segment> segments = create().load();
+    assertEquals(2, segments.size());
+    assertEquals(40, segments.get(0).record);
+    assertFalse(segments.get(0).isComplete);
+    assertEquals(100, segments.get(1).startL);
+    assertEquals(200, segments.get(1).endL);
+    assertTrue(segments.get(1).isComplete);
+  }
+
+  public void testSplitShortensOldSegment() throws Exception {
+    CheckpointJournal journal = create();
+    journal.load();
+    journal.writeSegment(0, 0, 100);
+    journal.writeSplit(0, 60, 1, 100);
+    journal.close();
+
+    SparseArray<CheckpointJournal.Segment> segments = create().load();
+    assertEquals(60, segments.get(0).endL);
+    assertEquals(60, segments.get(1).startL);
+    assertEquals(100, segments.get(1).endL);
+  }
+
+  public void testCorruptedTailIsTruncated() throws Exception {
+    CheckpointJournal journal = create();
+    journal.load();
+    journal.writeSegment(0, 0, 100);
+    journal.writeRecord(0, 30);
+    journal.close();
+    long validL = mFile.length();
+    RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+    try {
+      raf.seek(validL);
+      raf.write(new byte[] { 2, 0, 0, 0, 0, 1, 2, 3 });
+    } finally {
+      raf.close();
+    }
+
+    SparseArray<CheckpointJournal.Segment> segments = create().load();
+    assertEquals(30, segments.get(0).record);
+    assertEquals(validL, mFile.length());
+  }
+
+  public void testBadHeaderResetsJournal() throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+    try {
+      raf.writeInt(0x12345678);
+    } finally {
+      raf.close();
+    }
+    assertEquals(0, create().load().size());
+  }
+
+  public void testPostedRecordNeverGoesBack() throws Exception {
+    CheckpointJournal journal = create();
+    journal.load();
+    journal.writeSegment(0, 0, 100);
+    journal.writeRecord(0, 50);
+    journal.postRecord(0, 20);
+    journal.postRecord(0, 70);
+    journal.close();
+
+    assertEquals(70, create().load().get(0).record);
+  }
+
+  public void testCompactKeepsLatestState() throws Exception {
+    CheckpointJournal journal = create();
+    journal.load();
+    journal.writeSegment(0, 0, 10000);
+    journal.writeSegment(1, 10000, 20000);
+    for (int i = 1; i <= 2000; i++) {
+      journal.writeRecord(0, i);
+    }
+    journal.writeComplete(1);
+    journal.close();
+    //每个分段只保留最新的状态
+    assertTrue(mFile.length() < 4 + 25 * 600);
+
+    SparseArray<CheckpointJournal.Segment> segments = create().load();
+    assertEquals(2000, segments.get(0).record);
+    assertTrue(segments.get(1).isComplete);
+  }
+
+  public void testFailedCompactBacksOff() throws Exception {
+    //临时文件的位置被目录占用，压缩必然失败
+    File temp = new File(mFile.getPath() + ".tmp");
+    assertTrue(temp.mkdirs());
+    try {
+      CheckpointJournal journal = create();
+      journal.load();
+      journal.writeSegment(0, 0, 10000);
+      journal.writeSegment(1, 10000, 20000);
+      int failNum = 0;
+      for (int i = 1; i <= 1000; i++) {
+        try {
+          journal.writeRecord(0, i);
+        } catch (IOException e) {
+          failNum++;
+        }
+      }
+      journal.close();
+      //失败后需要再追加足够的记录才重试压缩
+      assertEquals(1, failNum);
+      assertEquals(1000, create().load().get(0).record);
+    } finally {
+      temp.delete();
+    }
+  }
+
+  private CheckpointJournal create() {
+    return new CheckpointJournal(mFile, DIRECT);
+  }
+}
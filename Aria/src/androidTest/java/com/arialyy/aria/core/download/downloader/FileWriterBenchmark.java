@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.arialyy.aria.core.AriaManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * {@link FileChannelWriter}和{@link RandomAccessFileWriter}的写入耗时对比，结果输出到logcat；
+ * 写入速度取决于设备的存储，需要在设备上运行
+ */
+public class FileWriterBenchmark extends AndroidTestCase {
+  private static final String TAG = "FileWriterBenchmark";
+  private static final int FILE_SIZE = 8 * 1024 * 1024;
+  private static final int THREAD_NUM = 4;
+
+  /**
+   * 每写入该长度保存一次断点，与下载线程保存断点的频率相近
+   */
+  private static final int CHECKPOINT_SIZE = 1024 * 1024;
+
+  private File mFile;
+  private int mBufSize;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    mBufSize = AriaManager.getInstance(getContext()).getDownloadConfig().getBuffSize();
+    mFile = new File(getContext().getCacheDir(), "writer_benchmark.tmp");
+    mFile.delete();
+  }
+
+  @Override protected void tearDown() throws Exception {
+    mFile.delete();
+    super.tearDown();
+  }
+
+  public void testFileChannelWriter() throws Exception {
+    long time = write(true);
+    Log.d(TAG, "FileChannelWriter，" + THREAD_NUM + "个线程写入" + FILE_SIZE + "字节，耗时" + time + "ms");
+    verify();
+  }
+
+  public void testRandomAccessFileWriter() throws Exception {
+    long time = write(false);
+    Log.d(TAG, "RandomAccessFileWriter，" + THREAD_NUM + "个线程写入" + FILE_SIZE + "字节，耗时" + time
+        + "ms");
+    verify();
+  }
+
+  /**
+   * 多个线程各自写入一个分段，与多线程下载的写入方式相同
+   *
+   * @return 耗时，单位：毫秒
+   */
+  private long write(final boolean useChannel) throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+    try {
+      raf.setLength(FILE_SIZE);
+    } finally {
+      raf.close();
+    }
+    final int segmentSize = FILE_SIZE / THREAD_NUM;
+    final IOException[] errors = new IOException[THREAD_NUM];
+    Thread[] threads = new Thread[THREAD_NUM];
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < THREAD_NUM; i++) {
+      final int index = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override public void run() {
+          try {
+            writeSegment(useChannel, index * segmentSize, segmentSize);
+          } catch (IOException e) {
+            errors[index] = e;
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long time = System.currentTimeMillis() - startTime;
+    for (IOException e : errors) {
+      if (e != null) {
+        throw e;
+      }
+    }
+    return time;
+  }
+
+  private void writeSegment(boolean useChannel, int startL, int len) throws IOException {
+    IFileWriter writer = useChannel ? new FileChannelWriter(mFile, startL, mBufSize)
+        : new RandomAccessFileWriter(mFile, startL, mBufSize);
+    byte[] buffer = new byte[mBufSize];
+    try {
+      int written = 0;
+      while (written < len) {
+        int n = Math.min(buffer.length, len - written);
+        fill(buffer, startL + written, n);
+        writer.write(buffer, 0, n);
+        written += n;
+        if (written % CHECKPOINT_SIZE == 0) {
+          writer.checkpoint();
+        }
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * 检查每个位置的数据是否正确
+   */
+  private void verify() throws IOException {
+    assertEquals(FILE_SIZE, mFile.length());
+    RandomAccessFile raf = new RandomAccessFile(mFile, "r");
+    try {
+      byte[] buffer = new byte[mBufSize];
+      byte[] expect = new byte[mBufSize];
+      int position = 0;
+      while (position < FILE_SIZE) {
+        int n = Math.min(buffer.length, FILE_SIZE - position);
+        raf.readFully(buffer, 0, n);
+        fill(expect, position, n);
+        assertTrue("位置" + position + "的数据错误",
+            Arrays.equals(Arrays.copyOf(buffer, n), Arrays.copyOf(expect, n)));
+        position += n;
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * 数据由文件位置决定，方便检查
+   */
+  private static void fill(byte[] buffer, int position, int len) {
+    for (int i = 0; i < len; i++) {
+      buffer[i] = (byte) ((position + i) * 31);
+    }
+  }
+}
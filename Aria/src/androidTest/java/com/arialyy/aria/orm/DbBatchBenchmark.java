@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.orm;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.download.DownloadEntity;
+import com.arialyy.aria.core.inf.IEntity;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 10000行{@link DownloadEntity}的插入和修改耗时，对比逐行写入和在一个事务中批量写入，结果输出到logcat；
+ * 需要SQLite，只能在设备上运行
+ */
+public class DbBatchBenchmark extends AndroidTestCase {
+  private static final String TAG = "DbBatchBenchmark";
+  private static final int ROW_NUM = 10000;
+  private static final String URL = "http://benchmark.arialyy.com/file_";
+
+  private List<DownloadEntity> mEntities;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    AriaManager.getInstance(getContext());
+    mEntities = new ArrayList<>();
+    for (int i = 0; i < ROW_NUM; i++) {
+      DownloadEntity entity = new DownloadEntity();
+      entity.setDownloadUrl(URL + i);
+      entity.setDownloadPath(getContext().getCacheDir().getPath() + "/file_" + i);
+      entity.setFileName("file_" + i);
+      entity.setFileSize(1024 * 1024);
+      entity.setState(IEntity.STATE_WAIT);
+      mEntities.add(entity);
+    }
+  }
+
+  @Override protected void tearDown() throws Exception {
+    DbEntity.deleteAll(mEntities);
+    super.tearDown();
+  }
+
+  public void testInsertOneByOne() {
+    long startTime = System.currentTimeMillis();
+    for (DownloadEntity entity : mEntities) {
+      entity.insert();
+    }
+    log("逐行插入", startTime);
+    checkInserted();
+  }
+
+  public void testSaveAll() {
+    long startTime = System.currentTimeMillis();
+    assertTrue(DbEntity.saveAll(mEntities));
+    log("批量插入", startTime);
+    checkInserted();
+  }
+
+  public void testUpdateOneByOne() {
+    assertTrue(DbEntity.saveAll(mEntities));
+    changeProgress();
+    long startTime = System.currentTimeMillis();
+    for (DownloadEntity entity : mEntities) {
+      entity.update();
+    }
+    log("逐行修改", startTime);
+    checkUpdated();
+  }
+
+  public void testUpdateAll() {
+    assertTrue(DbEntity.saveAll(mEntities));
+    changeProgress();
+    long startTime = System.currentTimeMillis();
+    assertTrue(DbEntity.updateAll(mEntities));
+    log("批量修改", startTime);
+    checkUpdated();
+  }
+
+  private void changeProgress() {
+    for (DownloadEntity entity : mEntities) {
+      entity.setCurrentProgress(512 * 1024);
+      entity.setState(IEntity.STATE_RUNNING);
+    }
+  }
+
+  private void checkInserted() {
+    for (DownloadEntity entity : mEntities) {
+      assertTrue(entity.getDownloadUrl() + "没有rowID", entity.rowID >= 0);
+    }
+    DownloadEntity last = mEntities.get(ROW_NUM - 1);
+    assertNotNull(DbEntity.findFirst(DownloadEntity.class, "downloadUrl=?", last.getDownloadUrl()));
+  }
+
+  private void checkUpdated() {
+    DownloadEntity last = mEntities.get(ROW_NUM - 1);
+    DownloadEntity entity =
+        DbEntity.findFirst(DownloadEntity.class, "downloadUrl=?", last.getDownloadUrl());
+    assertNotNull(entity);
+    assertEquals(512 * 1024, entity.getCurrentProgress());
+    assertEquals(IEntity.STATE_RUNNING, entity.getState());
+  }
+
+  private void log(String action, long startTime) {
+    Log.d(TAG, action + ROW_NUM + "行，耗时" + (System.currentTimeMillis() - startTime) + "ms");
+  }
+}
@@ -32,6 +32,7 @@ import com.arialyy.aria.core.download.DownloadReceiver;
 import com.arialyy.aria.core.command.ICmd;
 import com.arialyy.aria.core.inf.IReceiver;
 import com.arialyy.aria.core.upload.UploadReceiver;
+import com.arialyy.aria.orm.DbEntity;
 import com.arialyy.aria.orm.DbUtil;
 import com.arialyy.aria.util.CommonUtil;
 import java.io.File;
@@ -64,12 +65,15 @@ import org.xml.sax.SAXException;
   private List<ICmd> mCommands = new ArrayList<>();
   private Configuration.DownloadConfig mDConfig;
   private Configuration.UploadConfig mUConfig;
+  private ExecutorManager mExecutorManager;
+  private ProgressTicker mProgressTicker = new ProgressTicker();
 
   private AriaManager(Context context) {
     DbUtil.init(context.getApplicationContext());
     APP = context.getApplicationContext();
     regAppLifeCallback(context);
     initConfig();
+    mExecutorManager = new ExecutorManager(mDConfig.getMaxConnectionsPerHost());
   }
 
   public static AriaManager getInstance(Context context) {
@@ -131,6 +135,20 @@ import org.xml.sax.SAXException;
     return mUConfig;
   }
 
+  /**
+   * 获取线程池管理器，所有任务共用文件信息获取、下载和流程线程池
+   */
+  public ExecutorManager getExecutorManager() {
+    return mExecutorManager;
+  }
+
+  /**
+   * 获取进度定时器，所有任务共用
+   */
+  public ProgressTicker getProgressTicker() {
+    return mProgressTicker;
+  }
+
   /**
    * 设置命令
    */
@@ -354,6 +372,12 @@ import org.xml.sax.SAXException;
     }
 
     @Override public void onActivityStopped(Activity activity) {
+      //应用可能在后台被回收，写入延迟修改的数据
+      mExecutorManager.executeFlow(new Runnable() {
+        @Override public void run() {
+          DbEntity.flushData();
+        }
+      });
 
     }
 
@@ -83,13 +83,108 @@ class ConfigHelper extends DefaultHandler {
         case "maxSpeed":
           loadMaxSpeed(value);
           break;
+        case "globalMaxSpeed":
+          loadGlobalMaxSpeed(value);
+          break;
+        case "groupMaxSpeed":
+          loadGroupMaxSpeed(value);
+          break;
         case "queueMod":
           loadQueueMod(value);
           break;
+        case "checkpointInterval":
+          loadCheckpointInterval(value);
+          break;
+        case "checkpointSize":
+          loadCheckpointSize(value);
+          break;
+        case "nioWrite":
+          loadNioWrite(value);
+          break;
+        case "maxConnectionsPerHost":
+          loadMaxConnectionsPerHost(value);
+          break;
+        case "taskWeight":
+          loadTaskWeight(value);
+          break;
+        case "groupWeight":
+          loadGroupWeight(value);
+          break;
       }
     }
   }
 
+  private void loadCheckpointInterval(String value) {
+    int time = 2 * 1000;
+    if (!TextUtils.isEmpty(value)) {
+      time = Integer.parseInt(value);
+    }
+    if (time < 0) {
+      time = 0;
+    }
+    if (isDownloadConfig) {
+      mDownloadConfig.checkpointInterval = time;
+    }
+  }
+
+  private void loadCheckpointSize(String value) {
+    int size = 4 * 1024 * 1024;
+    if (!TextUtils.isEmpty(value)) {
+      size = Integer.parseInt(value);
+    }
+    if (size < 0) {
+      size = 0;
+    }
+    if (isDownloadConfig) {
+      mDownloadConfig.checkpointSize = size;
+    }
+  }
+
+  private void loadNioWrite(String value) {
+    boolean open = TextUtils.isEmpty(value) || Boolean.parseBoolean(value);
+    if (isDownloadConfig) {
+      mDownloadConfig.nioWrite = open;
+    }
+  }
+
+  private void loadMaxConnectionsPerHost(String value) {
+    int num = 8;
+    if (!TextUtils.isEmpty(value)) {
+      num = Integer.parseInt(value);
+    }
+    if (num < 1) {
+      Log.e(TAG, "每个主机的连接数不能小于 1");
+      num = 8;
+    }
+    if (isDownloadConfig) {
+      mDownloadConfig.maxConnectionsPerHost = num;
+    }
+  }
+
+  private void loadTaskWeight(String value) {
+    if (isDownloadConfig) {
+      mDownloadConfig.taskWeight = parseWeight(value);
+    }
+  }
+
+  private void loadGroupWeight(String value) {
+    if (isDownloadConfig) {
+      mDownloadConfig.groupWeight = parseWeight(value);
+    }
+  }
+
+  private int parseWeight(String value) {
+    int weight = 1;
+    if (!TextUtils.isEmpty(value)) {
+      weight = Integer.parseInt(value);
+    }
+    if (weight < 1) {
+      Log.e(TAG, "执行槽位的权重不能小于 1");
+      weight = 1;
+    }
+    return weight;
+  }
+
   private void loadQueueMod(String value) {
     String mod = "now";
     if (!TextUtils.isEmpty(value) && (value.equalsIgnoreCase("now") || value.equalsIgnoreCase(
@@ -114,6 +209,26 @@ class ConfigHelper extends DefaultHandler {
     }
   }
 
+  private void loadGlobalMaxSpeed(String value) {
+    double maxSpeed = 0.0;
+    if (!TextUtils.isEmpty(value)) {
+      maxSpeed = Double.parseDouble(value);
+    }
+    if (isDownloadConfig) {
+      mDownloadConfig.globalMaxSpeed = maxSpeed;
+    }
+  }
+
+  private void loadGroupMaxSpeed(String value) {
+    double maxSpeed = 0.0;
+    if (!TextUtils.isEmpty(value)) {
+      maxSpeed = Double.parseDouble(value);
+    }
+    if (isDownloadConfig) {
+      mDownloadConfig.groupMaxSpeed = maxSpeed;
+    }
+  }
+
   private void loadConvertSpeed(String value) {
     boolean open = Boolean.parseBoolean(value);
     if (isDownloadConfig) {
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core;
+
+import android.text.TextUtils;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程池管理器，由{@link AriaManager}持有，所有下载任务共用
+ * 1、文件信息获取线程池，用于获取文件长度、重定向地址
+ * 2、下载线程池，用于分段的读写
+ * 3、流程线程池，用于启动下载流程和执行回调
+ * 4、磁盘线程，只有一条线程，按提交顺序执行异步的磁盘写入
+ * 线程池的线程数有上限；文件信息获取和下载任务由{@link HostScheduler}按主机排队，每个主机同时执行的
+ * 任务数有上限，线程空闲时在主机之间轮询调度，排队的任务不会占用线程池的线程
+ */
+public final class ExecutorManager {
+  public static final int PRIORITY_LOW = 0;
+  public static final int PRIORITY_NORMAL = 5;
+  public static final int PRIORITY_HIGH = 10;
+
+  /**
+   * 文件信息获取线程池的线程数
+   */
+  private static final int PROBE_THREAD_NUM = 4;
+
+  /**
+   * 每个主机同时获取文件信息的任务数
+   */
+  private static final int PROBE_NUM_PER_HOST = 2;
+
+  /**
+   * 下载线程池的线程数
+   */
+  private static final int IO_THREAD_NUM = 32;
+
+  /**
+   * 流程线程池的线程数
+   */
+  private static final int FLOW_THREAD_NUM = 4;
+
+  /**
+   * 磁盘线程数，异步写入需要按提交顺序执行，只能有一条线程
+   */
+  private static final int DISK_THREAD_NUM = 1;
+
+  /**
+   * 空闲线程的存活时间，单位：秒
+   */
+  private static final long KEEP_ALIVE_TIME = 60;
+
+  private final PriorityExecutor mProbePool;
+  private final PriorityExecutor mIoPool;
+  private final PriorityExecutor mFlowPool;
+  private final PriorityExecutor mDiskPool;
+  private final HostScheduler mProbeScheduler;
+  private final HostScheduler mIoScheduler;
+
+  /**
+   * @param maxConnectionsPerHost 每个主机同时下载的分段数
+   */
+  ExecutorManager(int maxConnectionsPerHost) {
+    mProbePool = new PriorityExecutor("Aria-probe", PROBE_THREAD_NUM);
+    mIoPool = new PriorityExecutor("Aria-io", IO_THREAD_NUM);
+    mFlowPool = new PriorityExecutor("Aria-flow", FLOW_THREAD_NUM);
+    mDiskPool = new PriorityExecutor("Aria-disk", DISK_THREAD_NUM);
+    mProbeScheduler = new HostScheduler(mProbePool, PROBE_THREAD_NUM,
+        Math.min(PROBE_NUM_PER_HOST, maxConnectionsPerHost));
+    mIoScheduler = new HostScheduler(mIoPool, IO_THREAD_NUM, maxConnectionsPerHost);
+  }
+
+  /**
+   * 修改每个主机同时下载的分段数，正在执行的分段不受影响
+   */
+  public void setMaxConnectionsPerHost(int num) {
+    mIoScheduler.setMaxNumPerHost(num);
+    mProbeScheduler.setMaxNumPerHost(Math.min(PROBE_NUM_PER_HOST, num));
+  }
+
+  /**
+   * 获取文件信息
+   *
+   * @param host 文件所在的主机
+   * @param priority 优先级，{@link #PRIORITY_HIGH}、{@link #PRIORITY_NORMAL}、{@link #PRIORITY_LOW}
+   */
+  public void executeProbe(String host, Runnable probe, int priority) {
+    mProbeScheduler.execute(getHostKey(host), probe, priority);
+  }
+
+  /**
+   * 创建下载任务的分段执行器，分段在共享的下载线程池中执行，并受到主机的并发数限制
+   *
+   * @param host 文件所在的主机
+   * @param threadNum 任务同时下载的分段数
+   */
+  public LimitedExecutor createSegmentExecutor(String host, int threadNum) {
+    return new LimitedExecutor(mIoScheduler.getExecutor(getHostKey(host)), threadNum,
+        PRIORITY_NORMAL);
+  }
+
+  /**
+   * 执行下载流程或回调
+   */
+  public void executeFlow(Runnable runnable) {
+    mFlowPool.execute(runnable, PRIORITY_NORMAL);
+  }
+
+  /**
+   * 获取磁盘线程，任务按提交顺序在同一条线程中执行
+   */
+  public Executor getDiskExecutor() {
+    return mDiskPool;
+  }
+
+  /**
+   * 获取文件信息的任务中排队的任务数
+   */
+  public int getProbeQueueSize() {
+    return mProbeScheduler.getPendingNum() + mProbePool.mPool.getQueue().size();
+  }
+
+  /**
+   * 获取文件信息线程池中正在执行的线程数
+   */
+  public int getProbeActiveCount() {
+    return mProbePool.mPool.getActiveCount();
+  }
+
+  /**
+   * 排队中的分段数
+   */
+  public int getIoQueueSize() {
+    return mIoScheduler.getPendingNum() + mIoPool.mPool.getQueue().size();
+  }
+
+  /**
+   * 下载线程池中正在执行的线程数
+   */
+  public int getIoActiveCount() {
+    return mIoPool.mPool.getActiveCount();
+  }
+
+  public int getFlowQueueSize() {
+    return mFlowPool.mPool.getQueue().size();
+  }
+
+  public int getFlowActiveCount() {
+    return mFlowPool.mPool.getActiveCount();
+  }
+
+  /**
+   * 等待磁盘线程写入的任务数
+   */
+  public int getDiskQueueSize() {
+    return mDiskPool.mPool.getQueue().size();
+  }
+
+  public int getDiskActiveCount() {
+    return mDiskPool.mPool.getActiveCount();
+  }
+
+  /**
+   * 主机因并发数限制而等待的分段数
+   */
+  public int getHostIoPendingNum(String host) {
+    return mIoScheduler.getPendingNum(getHostKey(host));
+  }
+
+  /**
+   * 主机正在下载的分段数
+   */
+  public int getHostIoActiveNum(String host) {
+    return mIoScheduler.getActiveNum(getHostKey(host));
+  }
+
+  /**
+   * 主机因并发数限制而等待获取文件信息的任务数
+   */
+  public int getHostProbePendingNum(String host) {
+    return mProbeScheduler.getPendingNum(getHostKey(host));
+  }
+
+  /**
+   * 地址错误没有主机名的任务共用一个队列
+   */
+  private static String getHostKey(String host) {
+    return TextUtils.isEmpty(host) ? "" : host;
+  }
+
+  /**
+   * 按优先级执行任务的线程池，优先级相同时先提交的先执行
+   */
+  static final class PriorityExecutor implements IPriorityExecutor {
+    private final ThreadPoolExecutor mPool;
+    private final AtomicLong mSeq = new AtomicLong();
+
+    PriorityExecutor(final String name, int threadNum) {
+      mPool = new ThreadPoolExecutor(threadNum, threadNum, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+          new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger mNum = new AtomicInteger();
+
+        @Override public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, name + "-" + mNum.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      mPool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override public void execute(Runnable command) {
+      execute(command, PRIORITY_NORMAL);
+    }
+
+    @Override public void execute(Runnable command, int priority) {
+      mPool.execute(new PriorityTask(command, priority, mSeq.getAndIncrement()));
+    }
+  }
+
+  private static final class PriorityTask implements Runnable, Comparable<PriorityTask> {
+    private final Runnable mRunnable;
+    private final int mPriority;
+    private final long mSeq;
+
+    PriorityTask(Runnable runnable, int priority, long seq) {
+      mRunnable = runnable;
+      mPriority = priority;
+      mSeq = seq;
+    }
+
+    @Override public void run() {
+      mRunnable.run();
+    }
+
+    @Override public int compareTo(PriorityTask another) {
+      if (mPriority != another.mPriority) {
+        return mPriority > another.mPriority ? -1 : 1;
+      }
+      return mSeq < another.mSeq ? -1 : (mSeq == another.mSeq ? 0 : 1);
+    }
+  }
+}
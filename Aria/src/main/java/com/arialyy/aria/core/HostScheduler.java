@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按主机调度的执行器
+ * 每个主机的任务单独排队，同时执行的任务数不超过主机的上限；线程池有空闲线程时，从上一次调度的主机之后
+ * 轮询选择有等待任务的主机，任务多的主机不会让任务少的主机一直等待
+ */
+final class HostScheduler {
+  private final ExecutorManager.PriorityExecutor mExecutor;
+  private final int mThreadNum;
+  private int mMaxNumPerHost;
+  private int mActiveNum = 0;
+  private final Map<String, Host> mHosts = new HashMap<>();
+  //有等待任务的主机，按轮询顺序排列
+  private final List<Host> mReadyHosts = new ArrayList<>();
+  private int mCursor = 0;
+
+  private static final class Host {
+    final String name;
+    final LinkedList<Entry> pending = new LinkedList<>();
+    int activeNum = 0;
+
+    Host(String name) {
+      this.name = name;
+    }
+  }
+
+  private static final class Entry {
+    final Runnable command;
+    final int priority;
+
+    Entry(Runnable command, int priority) {
+      this.command = command;
+      this.priority = priority;
+    }
+  }
+
+  /**
+   * @param executor 实际执行任务的线程池
+   * @param threadNum 线程池的线程数，同时提交到线程池的任务不超过该值
+   * @param maxNumPerHost 每个主机同时执行的任务数
+   */
+  HostScheduler(ExecutorManager.PriorityExecutor executor, int threadNum, int maxNumPerHost) {
+    mExecutor = executor;
+    mThreadNum = threadNum;
+    mMaxNumPerHost = Math.max(1, maxNumPerHost);
+  }
+
+  /**
+   * 获取主机的执行器
+   */
+  IPriorityExecutor getExecutor(final String host) {
+    return new IPriorityExecutor() {
+      @Override public void execute(Runnable command, int priority) {
+        HostScheduler.this.execute(host, command, priority);
+      }
+
+      @Override public void execute(Runnable command) {
+        execute(command, ExecutorManager.PRIORITY_NORMAL);
+      }
+    };
+  }
+
+  /**
+   * 提交任务，同一主机的任务按优先级排队
+   */
+  void execute(String host, Runnable command, int priority) {
+    synchronized (this) {
+      Host h = mHosts.get(host);
+      if (h == null) {
+        h = new Host(host);
+        mHosts.put(host, h);
+      }
+      int index = h.pending.size();
+      while (index > 0 && h.pending.get(index - 1).priority < priority) {
+        index--;
+      }
+      h.pending.add(index, new Entry(command, priority));
+      if (h.pending.size() == 1) {
+        mReadyHosts.add(h);
+      }
+    }
+    dispatch();
+  }
+
+  /**
+   * 修改每个主机同时执行的任务数
+   */
+  void setMaxNumPerHost(int maxNumPerHost) {
+    synchronized (this) {
+      mMaxNumPerHost = Math.max(1, maxNumPerHost);
+    }
+    dispatch();
+  }
+
+  synchronized int getMaxNumPerHost() {
+    return mMaxNumPerHost;
+  }
+
+  /**
+   * 主机正在执行的任务数
+   */
+  synchronized int getActiveNum(String host) {
+    Host h = mHosts.get(host);
+    return h == null ? 0 : h.activeNum;
+  }
+
+  /**
+   * 主机等待中的任务数
+   */
+  synchronized int getPendingNum(String host) {
+    Host h = mHosts.get(host);
+    return h == null ? 0 : h.pending.size();
+  }
+
+  /**
+   * 所有主机等待中的任务数
+   */
+  synchronized int getPendingNum() {
+    int num = 0;
+    for (Host h : mReadyHosts) {
+      num += h.pending.size();
+    }
+    return num;
+  }
+
+  private void dispatch() {
+    while (true) {
+      final Host host;
+      final Entry entry;
+      synchronized (this) {
+        if (mActiveNum >= mThreadNum) {
+          return;
+        }
+        host = nextHost();
+        if (host == null) {
+          return;
+        }
+        entry = host.pending.poll();
+        if (host.pending.isEmpty()) {
+          mReadyHosts.remove(host);
+        }
+        host.activeNum++;
+        mActiveNum++;
+      }
+      mExecutor.execute(new Runnable() {
+        @Override public void run() {
+          try {
+            entry.command.run();
+          } finally {
+            synchronized (HostScheduler.this) {
+              host.activeNum--;
+              mActiveNum--;
+              if (host.activeNum == 0 && host.pending.isEmpty()) {
+                mHosts.remove(host.name);
+              }
+            }
+            dispatch();
+          }
+        }
+      }, entry.priority);
+    }
+  }
+
+  /**
+   * 从上一次调度的主机之后轮询，找到第一个没有达到并发上限的主机
+   */
+  private Host nextHost() {
+    int size = mReadyHosts.size();
+    for (int i = 0; i < size; i++) {
+      int index = (mCursor + i) % size;
+      Host h = mReadyHosts.get(index);
+      if (h.activeNum < mMaxNumPerHost) {
+        mCursor = index + 1;
+        return h;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 支持优先级的执行器
+ */
+interface IPriorityExecutor extends Executor {
+
+  /**
+   * 提交任务
+   *
+   * @param priority 优先级，{@link ExecutorManager#PRIORITY_HIGH}、{@link ExecutorManager#PRIORITY_NORMAL}、
+   * {@link ExecutorManager#PRIORITY_LOW}
+   */
+  void execute(Runnable command, int priority);
+}
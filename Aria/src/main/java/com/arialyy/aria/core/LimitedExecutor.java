@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+/**
+ * 限制并发数的执行器
+ * 任务不会创建新的线程，而是交给共享的线程池执行，同时执行的任务数超过上限时在本地按优先级排队，
+ * 上限可以在运行时修改，减小上限后多出的任务执行完成后不再补充
+ */
+public final class LimitedExecutor implements IPriorityExecutor {
+  private final Executor mExecutor;
+  private final int mPriority;
+  private final LinkedList<Entry> mPending = new LinkedList<>();
+  private int mMaxNum;
+  private int mActiveNum = 0;
+  private boolean isShutdown = false;
+
+  /**
+   * @param executor 实际执行任务的线程池，支持{@link IPriorityExecutor}时任务保留优先级
+   * @param maxNum 最多同时执行的任务数
+   * @param priority 任务的默认优先级
+   */
+  LimitedExecutor(Executor executor, int maxNum, int priority) {
+    mExecutor = executor;
+    mMaxNum = Math.max(1, maxNum);
+    mPriority = priority;
+  }
+
+  /**
+   * 以默认优先级提交任务，执行器关闭后提交的任务会被忽略
+   */
+  @Override public void execute(Runnable command) {
+    execute(command, mPriority);
+  }
+
+  /**
+   * 提交任务，优先级高的任务先执行，优先级相同时先提交的先执行
+   */
+  @Override public void execute(Runnable command, int priority) {
+    synchronized (this) {
+      if (isShutdown) {
+        return;
+      }
+      int index = mPending.size();
+      while (index > 0 && mPending.get(index - 1).priority < priority) {
+        index--;
+      }
+      mPending.add(index, new Entry(command, priority));
+    }
+    dispatch();
+  }
+
+  /**
+   * 修改最多同时执行的任务数
+   */
+  public void setMaxNum(int maxNum) {
+    synchronized (this) {
+      mMaxNum = Math.max(1, maxNum);
+    }
+    dispatch();
+  }
+
+  public synchronized int getMaxNum() {
+    return mMaxNum;
+  }
+
+  /**
+   * 正在执行的任务数
+   */
+  public synchronized int getActiveNum() {
+    return mActiveNum;
+  }
+
+  /**
+   * 排队中的任务数
+   */
+  public synchronized int getPendingNum() {
+    return mPending.size();
+  }
+
+  /**
+   * 关闭执行器，排队中的任务不再执行，正在执行的任务不受影响
+   */
+  public synchronized void shutdown() {
+    isShutdown = true;
+    mPending.clear();
+  }
+
+  public synchronized boolean isShutdown() {
+    return isShutdown;
+  }
+
+  private void dispatch() {
+    while (true) {
+      final Entry entry;
+      synchronized (this) {
+        if (isShutdown || mActiveNum >= mMaxNum || mPending.isEmpty()) {
+          return;
+        }
+        entry = mPending.poll();
+        mActiveNum++;
+      }
+      Runnable task = new Runnable() {
+        @Override public void run() {
+          try {
+            entry.command.run();
+          } finally {
+            synchronized (LimitedExecutor.this) {
+              mActiveNum--;
+            }
+            dispatch();
+          }
+        }
+      };
+      if (mExecutor instanceof IPriorityExecutor) {
+        ((IPriorityExecutor) mExecutor).execute(task, entry.priority);
+      } else {
+        mExecutor.execute(task);
+      }
+    }
+  }
+
+  private static final class Entry {
+    final Runnable command;
+    final int priority;
+
+    Entry(Runnable command, int priority) {
+      this.command = command;
+      this.priority = priority;
+    }
+  }
+}
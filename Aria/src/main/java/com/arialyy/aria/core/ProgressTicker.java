@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core;
+
+import android.util.Log;
+import com.arialyy.aria.util.CommonUtil;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进度定时器，由{@link AriaManager}持有，所有任务共用一个线程
+ * 任务注册后按自己的间隔回调进度；定时器以固定的基础间隔检查所有任务，同一时刻到期的回调在一次检查中批量执行，
+ * 没有注册的任务时停止检查
+ */
+public final class ProgressTicker {
+  private static final String TAG = "ProgressTicker";
+
+  /**
+   * 默认的进度回调间隔，单位：毫秒
+   */
+  public static final long DEFAULT_INTERVAL = 1000;
+
+  /**
+   * 最小的进度回调间隔，也是定时器检查的间隔，单位：毫秒
+   */
+  public static final long MIN_INTERVAL = 100;
+
+  private final ScheduledExecutorService mExecutor;
+  private final List<Ticket> mTickets = new CopyOnWriteArrayList<>();
+  private ScheduledFuture<?> mFuture;
+
+  /**
+   * 注册后得到的凭证，用于修改回调间隔和取消注册
+   */
+  public static final class Ticket {
+    private final Runnable mCallback;
+    private volatile long mInterval;
+    private volatile boolean isCancel = false;
+    private long mNextTime;
+    private final ProgressTicker mTicker;
+
+    private Ticket(ProgressTicker ticker, Runnable callback, long interval) {
+      mTicker = ticker;
+      mCallback = callback;
+      mInterval = interval;
+    }
+
+    /**
+     * 修改回调间隔，下一次回调后生效
+     *
+     * @param interval 单位：毫秒，不能小于{@link #MIN_INTERVAL}
+     */
+    public void setInterval(long interval) {
+      mInterval = Math.max(MIN_INTERVAL, interval);
+    }
+
+    public long getInterval() {
+      return mInterval;
+    }
+
+    /**
+     * 取消注册，可以在回调中调用
+     */
+    public void cancel() {
+      isCancel = true;
+      mTicker.unregister(this);
+    }
+  }
+
+  ProgressTicker() {
+    mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Aria-ticker");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * 注册进度回调，注册后立即回调一次
+   *
+   * @param interval 回调间隔，单位：毫秒
+   */
+  public Ticket register(Runnable callback, long interval) {
+    Ticket ticket = new Ticket(this, callback, Math.max(MIN_INTERVAL, interval));
+    mTickets.add(ticket);
+    synchronized (this) {
+      if (mFuture == null) {
+        mFuture = mExecutor.scheduleAtFixedRate(mTickTask, 0, MIN_INTERVAL, TimeUnit.MILLISECONDS);
+      }
+    }
+    return ticket;
+  }
+
+  /**
+   * 在定时器线程中延迟执行一次
+   *
+   * @param delay 单位：毫秒
+   */
+  public ScheduledFuture<?> schedule(Runnable runnable, long delay) {
+    return mExecutor.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 已注册的任务数
+   */
+  public int getTicketNum() {
+    return mTickets.size();
+  }
+
+  private void unregister(Ticket ticket) {
+    mTickets.remove(ticket);
+    synchronized (this) {
+      if (mTickets.isEmpty() && mFuture != null) {
+        mFuture.cancel(false);
+        mFuture = null;
+      }
+    }
+  }
+
+  private Runnable mTickTask = new Runnable() {
+    @Override public void run() {
+      long now = System.currentTimeMillis();
+      for (Ticket ticket : mTickets) {
+        if (ticket.isCancel || now < ticket.mNextTime) {
+          continue;
+        }
+        ticket.mNextTime = now + ticket.mInterval;
+        try {
+          ticket.mCallback.run();
+        } catch (Exception e) {
+          //回调的异常不能中断定时器
+          Log.e(TAG, "进度回调失败\n" + CommonUtil.getPrintException(e));
+        }
+      }
+    }
+  };
+}
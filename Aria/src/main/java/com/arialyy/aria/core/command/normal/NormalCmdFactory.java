@@ -61,6 +61,10 @@ public class NormalCmdFactory extends AbsCmdFactory<AbsNormalCmd> {
    * 删除所有任务，
    */
   public static final int TASK_CANCEL_ALL = 0x131;
+  /**
+   * 修改任务优先级
+   */
+  public static final int TASK_PRIORITY = 0x132;
   private static volatile NormalCmdFactory INSTANCE = null;
 
   private NormalCmdFactory() {
@@ -80,7 +84,8 @@ public class NormalCmdFactory extends AbsCmdFactory<AbsNormalCmd> {
    * @param target 创建任务的对象
    * @param entity 下载实体
    * @param type 命令类型{@link #TASK_CREATE}、{@link #TASK_START}、{@link #TASK_CANCEL}、{@link
-   * #TASK_STOP}、{@link #TASK_HIGHEST_PRIORITY}、{@link #TASK_STOP_ALL}、{@link #TASK_RESUME_ALL}
+   * #TASK_STOP}、{@link #TASK_HIGHEST_PRIORITY}、{@link #TASK_STOP_ALL}、{@link #TASK_RESUME_ALL}、
+   * {@link #TASK_PRIORITY}
    */
   public <T extends AbsTaskEntity> AbsNormalCmd<T> createCmd(String target, T entity, int type) {
     switch (type) {
@@ -101,6 +106,8 @@ public class NormalCmdFactory extends AbsCmdFactory<AbsNormalCmd> {
         return new ResumeAllCmd<>(target, entity);
       case TASK_CANCEL_ALL:
         return new CancelAllCmd<>(target, entity);
+      case TASK_PRIORITY:
+        return new PriorityCmd<>(target, entity);
       default:
         return null;
     }
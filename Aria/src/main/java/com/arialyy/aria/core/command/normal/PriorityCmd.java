@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.command.normal;
+
+import com.arialyy.aria.core.download.DownloadTask;
+import com.arialyy.aria.core.download.DownloadTaskEntity;
+import com.arialyy.aria.core.inf.AbsTaskEntity;
+import com.arialyy.aria.core.queue.DownloadTaskQueue;
+
+/**
+ * 修改任务优先级的命令，任务还没有创建时，优先级在任务创建时生效
+ * 目前只支持单下载任务
+ */
+final class PriorityCmd<T extends AbsTaskEntity<?>> extends AbsNormalCmd<T> {
+  /**
+   * @param targetName 产生任务的对象名
+   */
+  PriorityCmd(String targetName, T entity) {
+    super(targetName, entity);
+  }
+
+  @Override public void executeCmd() {
+    if (!canExeCmd || !(mTaskEntity instanceof DownloadTaskEntity)) return;
+    DownloadTaskEntity entity = (DownloadTaskEntity) mTaskEntity;
+    DownloadTaskQueue queue = DownloadTaskQueue.getInstance();
+    DownloadTask task = queue.getTask(entity.getEntity());
+    if (task != null) {
+      queue.setTaskPriority(task, entity.priority);
+    }
+  }
+}
@@ -26,7 +26,6 @@ import com.arialyy.aria.core.inf.IEntity;
 import com.arialyy.aria.core.inf.AbsTaskEntity;
 import com.arialyy.aria.core.queue.DownloadGroupTaskQueue;
 import com.arialyy.aria.core.queue.DownloadTaskQueue;
-import com.arialyy.aria.core.scheduler.DQueueMapping;
 import com.arialyy.aria.orm.Primary;
 
 /**
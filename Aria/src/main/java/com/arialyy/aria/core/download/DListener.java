@@ -32,6 +32,7 @@ class DListener<ENTITY extends AbsEntity, TASK extends AbsTask<ENTITY>>
     extends DownloadListener {
   private WeakReference<Handler> outHandler;
   private long lastLen = 0;   //上一次发送长度
+  private long lastTime = 0;  //上一次发送时间
   private boolean isFirst = true;
   private ENTITY entity;
   private TASK task;
@@ -70,12 +71,17 @@ class DListener<ENTITY extends AbsEntity, TASK extends AbsTask<ENTITY>>
 
   @Override public void onProgress(long currentLocation) {
     entity.setCurrentProgress(currentLocation);
-    long speed = currentLocation - lastLen;
+    //进度回调间隔可以修改，速度统一换算为每秒的字节数
+    long now = System.currentTimeMillis();
+    long time = now - lastTime;
+    long speed = time > 0 ? (currentLocation - lastLen) * 1000 / time : 0;
     if (isFirst) {
       speed = 0;
       isFirst = false;
     }
+    lastTime = now;
     handleSpeed(speed);
+    entity.setTimeLeft(speed > 0 ? (entity.getFileSize() - currentLocation) / speed : -1);
     sendInState2Target(ISchedulers.RUNNING);
     lastLen = currentLocation;
   }
@@ -138,7 +144,7 @@ class DListener<ENTITY extends AbsEntity, TASK extends AbsTask<ENTITY>>
       if (location != -1) {
         entity.setCurrentProgress(location);
       }
-      entity.update();
+      entity.postUpdate();
     }
   }
 }
\ No newline at end of file
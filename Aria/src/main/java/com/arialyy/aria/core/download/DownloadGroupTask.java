@@ -18,8 +18,8 @@ package com.arialyy.aria.core.download;
 import android.os.Handler;
 import com.arialyy.aria.core.AriaManager;
 import com.arialyy.aria.core.download.downloader.DownloadGroupUtil;
-import com.arialyy.aria.core.download.downloader.IDownloadUtil;
 import com.arialyy.aria.core.inf.AbsGroupTask;
+import com.arialyy.aria.core.inf.IEntity;
 import com.arialyy.aria.core.scheduler.ISchedulers;
 import com.arialyy.aria.util.CheckUtil;
 
@@ -30,7 +30,7 @@ import com.arialyy.aria.util.CheckUtil;
 public class DownloadGroupTask extends AbsGroupTask<DownloadGroupTaskEntity, DownloadGroupEntity> {
   private final String TAG = "DownloadGroupTask";
   private DListener<DownloadGroupEntity, DownloadGroupTask> mListener;
-  private IDownloadUtil mUtil;
+  private DownloadGroupUtil mUtil;
 
   private DownloadGroupTask(DownloadGroupTaskEntity taskEntity, Handler outHandler) {
     mTaskEntity = taskEntity;
@@ -41,16 +41,50 @@ public class DownloadGroupTask extends AbsGroupTask<DownloadGroupTaskEntity, Dow
     mUtil = new DownloadGroupUtil(mListener, mTaskEntity);
   }
 
+  /**
+   * 设置任务组的最大下载速度，单位：kb，任务组所有子任务的速度之和不会超过该值
+   *
+   * @param maxSpeed 为0表示不限速
+   */
+  public void setMaxSpeed(double maxSpeed) {
+    mUtil.setMaxSpeed(maxSpeed);
+  }
+
+  /**
+   * 设置进度回调间隔，单位：毫秒，默认1000毫秒，最小100毫秒；
+   * 界面可见时可以缩短间隔，进入后台时延长间隔以减少回调
+   */
+  public void setProgressInterval(long interval) {
+    mUtil.setProgressInterval(interval);
+  }
+
   @Override public boolean isRunning() {
     return mUtil.isDownloading();
   }
 
   @Override public void start() {
+    mListener.isWait = false;
     mUtil.startDownload();
   }
 
   @Override public void stop() {
+    stop(false);
+  }
+
+  /**
+   * 暂停任务，并让任务处于等待状态
+   */
+  @Override public void stopAndWait() {
+    stop(true);
+  }
+
+  private void stop(boolean isWait) {
+    mListener.isWait = isWait;
     if (!mUtil.isDownloading()) {
+      if (isWait) {
+        mEntity.setState(IEntity.STATE_WAIT);
+        mEntity.update();
+      }
       if (mOutHandler != null) {
         mOutHandler.obtainMessage(ISchedulers.STOP, this).sendToTarget();
       }
@@ -17,10 +17,13 @@ package com.arialyy.aria.core.download;
 
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.command.normal.NormalCmdFactory;
 import com.arialyy.aria.core.inf.AbsNormalTarget;
 import com.arialyy.aria.core.inf.IEntity;
 import com.arialyy.aria.core.queue.DownloadTaskQueue;
 import com.arialyy.aria.orm.DbEntity;
+import com.arialyy.aria.util.CommonUtil;
 import java.io.File;
 
 /**
@@ -86,6 +89,21 @@ public class DownloadTarget
     super.setHighestPriority();
   }
 
+  /**
+   * 设置任务的优先级，等待中的任务立即按新的优先级排队，还没有创建的任务在创建时生效；
+   * 缓存池优先执行高优先级的任务，低优先级的任务等待时间越长优先级越高
+   *
+   * @param priority {@link DownloadTask#PRIORITY_BACKGROUND}、{@link DownloadTask#PRIORITY_NORMAL}、
+   * {@link DownloadTask#PRIORITY_HIGH}、{@link DownloadTask#PRIORITY_CRITICAL}
+   */
+  public DownloadTarget setPriority(int priority) {
+    mTaskEntity.priority = priority;
+    AriaManager.getInstance(AriaManager.APP)
+        .setCmd(CommonUtil.createCmd(mTargetName, mTaskEntity, NormalCmdFactory.TASK_PRIORITY))
+        .exe();
+    return this;
+  }
+
   /**
    * 重定向后，新url的key，默认为location
    */
@@ -102,6 +102,14 @@ public class DownloadTask extends AbsNormalTask<DownloadEntity> {
     mUtil.setMaxSpeed(maxSpeed);
   }
 
+  /**
+   * 设置进度回调间隔，单位：毫秒，默认1000毫秒，最小100毫秒；
+   * 界面可见时可以缩短间隔，进入后台时延长间隔以减少回调
+   */
+  public void setProgressInterval(long interval) {
+    mUtil.setProgressInterval(interval);
+  }
+
   /**
    * 开始下载
    */
@@ -15,7 +15,9 @@
  */
 package com.arialyy.aria.core.download;
 
+import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.inf.AbsTaskEntity;
+import com.arialyy.aria.orm.Ignore;
 import com.arialyy.aria.orm.OneToOne;
 
 /**
@@ -36,6 +38,11 @@ public class DownloadTaskEntity extends AbsTaskEntity<DownloadEntity> {
    */
   public boolean isGroupTask = false;
 
+  /**
+   * 任务的优先级，{@link AbsTask#PRIORITY_NORMAL}等，不保存到数据库
+   */
+  @Ignore public int priority = AbsTask.PRIORITY_NORMAL;
+
   public DownloadTaskEntity() {
   }
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import com.arialyy.aria.core.AriaManager;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下载线程的buffer缓存池
+ * 缓存的buffer大小为{@link com.arialyy.aria.core.Configuration.DownloadConfig#getBuffSize()}，
+ * 修改buffSize后，旧大小的buffer不会再被缓存；
+ * 命中和未命中次数公开，用于统计缓存池的命中率，其它方法只供下载线程使用
+ */
+public final class BufferPool {
+  /**
+   * 每个缓存池最多占用的内存
+   */
+  private static final int MAX_POOL_BYTES = 1024 * 1024;
+
+  /**
+   * 每个缓存池最少可以缓存的buffer数
+   */
+  private static final int MIN_POOL_NUM = 4;
+
+  private static final AtomicLong HIT_NUM = new AtomicLong();
+  private static final AtomicLong MISS_NUM = new AtomicLong();
+
+  /**
+   * 读取网络流的buffer
+   */
+  private static final Pool<byte[]> ARRAY_POOL = new Pool<byte[]>() {
+    @Override byte[] create(int size) {
+      return new byte[size];
+    }
+
+    @Override int sizeOf(byte[] array) {
+      return array.length;
+    }
+  };
+
+  /**
+   * FileChannel写文件使用的direct buffer
+   */
+  private static final Pool<ByteBuffer> BUFFER_POOL = new Pool<ByteBuffer>() {
+    @Override ByteBuffer create(int size) {
+      return ByteBuffer.allocateDirect(size);
+    }
+
+    @Override int sizeOf(ByteBuffer buffer) {
+      return buffer.capacity();
+    }
+  };
+
+  private BufferPool() {
+  }
+
+  static byte[] obtainArray(int size) {
+    return ARRAY_POOL.obtain(size);
+  }
+
+  static void recycle(byte[] array) {
+    ARRAY_POOL.recycle(array);
+  }
+
+  static ByteBuffer obtainBuffer(int size) {
+    ByteBuffer buffer = BUFFER_POOL.obtain(size);
+    buffer.clear();
+    return buffer;
+  }
+
+  static void recycle(ByteBuffer buffer) {
+    BUFFER_POOL.recycle(buffer);
+  }
+
+  /**
+   * 从缓存池中获取到buffer的次数
+   */
+  public static long getHitNum() {
+    return HIT_NUM.get();
+  }
+
+  /**
+   * 缓存池中没有可用的buffer，需要新建buffer的次数
+   */
+  public static long getMissNum() {
+    return MISS_NUM.get();
+  }
+
+  private static int getBuffSize() {
+    return AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getBuffSize();
+  }
+
+  private static abstract class Pool<T> {
+    private final Queue<T> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mSize = new AtomicInteger();
+
+    abstract T create(int size);
+
+    abstract int sizeOf(T t);
+
+    T obtain(int size) {
+      T t;
+      while ((t = mQueue.poll()) != null) {
+        mSize.decrementAndGet();
+        if (sizeOf(t) == size) {
+          HIT_NUM.incrementAndGet();
+          return t;
+        }
+      }
+      MISS_NUM.incrementAndGet();
+      return create(size);
+    }
+
+    void recycle(T t) {
+      if (t == null) {
+        return;
+      }
+      int size = sizeOf(t);
+      if (size != getBuffSize()) {
+        return;
+      }
+      if (mSize.incrementAndGet() > Math.max(MIN_POOL_NUM, MAX_POOL_BYTES / size)) {
+        mSize.decrementAndGet();
+        return;
+      }
+      mQueue.offer(t);
+    }
+  }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import android.util.Log;
+import android.util.SparseArray;
+import com.arialyy.aria.core.ExecutorManager;
+import com.arialyy.aria.util.CommonUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * 断点记录日志
+ * 分段的位置、下载进度和完成状态以定长的二进制记录追加到日志末尾，每条记录带有CRC校验；
+ * 恢复时读取到第一条损坏的记录为止，记录数过多时将日志压缩为每个分段的最新状态
+ */
+final class CheckpointJournal {
+  private static final String TAG = "CheckpointJournal";
+
+  /**
+   * 日志文件头
+   */
+  private static final int MAGIC = 0x41524A31;
+  private static final int HEADER_SIZE = 4;
+
+  /**
+   * 记录长度：类型(1) + 分段id(4) + 数据(8 + 8) + CRC(4)
+   */
+  private static final int RECORD_SIZE = 25;
+  private static final int CRC_OFFSET = RECORD_SIZE - 4;
+
+  /**
+   * 分段位置，数据为开始位置和结束位置
+   */
+  private static final byte TYPE_SEGMENT = 1;
+
+  /**
+   * 分段下载进度，数据为当前下载位置
+   */
+  private static final byte TYPE_RECORD = 2;
+
+  /**
+   * 分段下载完成
+   */
+  private static final byte TYPE_COMPLETE = 3;
+
+  /**
+   * 分段被拆分，数据为新的结束位置
+   */
+  private static final byte TYPE_SPLIT = 4;
+
+  /**
+   * 追加的记录数超过该值时压缩日志
+   */
+  private static final int COMPACT_NUM = 512;
+
+  private File mFile;
+  /**
+   * 异步写入下载进度的线程，下载线程不需要等待磁盘IO；需要按提交顺序执行
+   */
+  private Executor mFlushExecutor;
+  private RandomAccessFile mRaf;
+  private SparseArray<Segment> mSegments = new SparseArray<>();
+  private ByteBuffer mBuf = ByteBuffer.allocate(RECORD_SIZE);
+  private CRC32 mCrc = new CRC32();
+  private int mRecordNum;
+
+  private final Object mPendingLock = new Object();
+  //等待异步写入的下载进度，同一分段只保留最新的进度
+  private SparseArray<Long> mPendingRecords = new SparseArray<>();
+  private boolean isFlushPosted = false;
+
+  /**
+   * 分段信息
+   */
+  static final class Segment {
+    long startL;
+    long endL;
+    //当前下载位置
+    long record;
+    boolean isComplete;
+  }
+
+  /**
+   * @param flushExecutor 异步写入下载进度的线程，{@link ExecutorManager#getDiskExecutor()}
+   */
+  CheckpointJournal(File file, Executor flushExecutor) {
+    mFile = file;
+    mFlushExecutor = flushExecutor;
+  }
+
+  /**
+   * 读取日志，恢复所有分段的信息，损坏的记录及其后的内容会被截断
+   *
+   * @return 分段id和分段信息，日志不存在或文件头错误时为空
+   */
+  synchronized SparseArray<Segment> load() throws IOException {
+    open();
+    mSegments.clear();
+    mRecordNum = 0;
+    long len = mRaf.length();
+    if (len < HEADER_SIZE || len > Integer.MAX_VALUE) {
+      reset();
+      return getSegments();
+    }
+    byte[] data = new byte[(int) len];
+    mRaf.seek(0);
+    mRaf.readFully(data);
+    ByteBuffer buf = ByteBuffer.wrap(data);
+    if (buf.getInt() != MAGIC) {
+      reset();
+      return getSegments();
+    }
+    int validL = HEADER_SIZE;
+    while (validL + RECORD_SIZE <= len && apply(buf, validL)) {
+      validL += RECORD_SIZE;
+      mRecordNum++;
+    }
+    if (validL < len) {
+      Log.w(TAG, "断点记录【" + mFile.getName() + "】在位置" + validL + "处损坏，已截断");
+      mRaf.setLength(validL);
+    }
+    mRaf.seek(validL);
+    return getSegments();
+  }
+
+  /**
+   * 清空日志
+   */
+  synchronized void reset() throws IOException {
+    open();
+    mSegments.clear();
+    mRecordNum = 0;
+    mRaf.setLength(0);
+    mRaf.seek(0);
+    mRaf.writeInt(MAGIC);
+  }
+
+  /**
+   * 获取分段信息的副本
+   */
+  synchronized SparseArray<Segment> getSegments() {
+    SparseArray<Segment> segments = new SparseArray<>();
+    for (int i = 0, len = mSegments.size(); i < len; i++) {
+      Segment src = mSegments.valueAt(i);
+      Segment seg = new Segment();
+      seg.startL = src.startL;
+      seg.endL = src.endL;
+      seg.record = src.record;
+      seg.isComplete = src.isComplete;
+      segments.put(mSegments.keyAt(i), seg);
+    }
+    return segments;
+  }
+
+  /**
+   * 记录新分段的位置
+   */
+  synchronized void writeSegment(int id, long startL, long endL) throws IOException {
+    append(TYPE_SEGMENT, id, startL, endL);
+  }
+
+  /**
+   * 记录分段的拆分，被拆分分段的结束位置修改为拆分位置，拆分位置到原结束位置成为新的分段
+   */
+  synchronized void writeSplit(int oldId, long splitL, int newId, long endL) throws IOException {
+    append(TYPE_SPLIT, oldId, splitL, 0);
+    append(TYPE_SEGMENT, newId, splitL, endL);
+  }
+
+  /**
+   * 记录分段的下载进度
+   */
+  synchronized void writeRecord(int id, long record) throws IOException {
+    append(TYPE_RECORD, id, record, 0);
+  }
+
+  /**
+   * 异步记录分段的下载进度
+   */
+  void postRecord(int id, long record) {
+    synchronized (mPendingLock) {
+      mPendingRecords.put(id, record);
+      if (isFlushPosted) {
+        return;
+      }
+      isFlushPosted = true;
+    }
+    mFlushExecutor.execute(mFlushTask);
+  }
+
+  private Runnable mFlushTask = new Runnable() {
+    @Override public void run() {
+      SparseArray<Long> records;
+      synchronized (mPendingLock) {
+        records = mPendingRecords;
+        mPendingRecords = new SparseArray<>();
+        isFlushPosted = false;
+      }
+      synchronized (CheckpointJournal.this) {
+        try {
+          for (int i = 0, len = records.size(); i < len; i++) {
+            int id = records.keyAt(i);
+            long record = records.valueAt(i);
+            Segment seg = mSegments.get(id);
+            //同步写入的记录可能比异步的记录更新，进度不能回退
+            if (seg == null || seg.isComplete || record <= seg.record) {
+              continue;
+            }
+            append(TYPE_RECORD, id, record, 0);
+          }
+        } catch (IOException e) {
+          Log.e(TAG, "写入断点记录失败\n" + CommonUtil.getPrintException(e));
+        }
+      }
+    }
+  };
+
+  /**
+   * 记录分段下载完成
+   */
+  synchronized void writeComplete(int id) throws IOException {
+    append(TYPE_COMPLETE, id, 0, 0);
+  }
+
+  /**
+   * 关闭日志，关闭后的写入将被忽略
+   */
+  synchronized void close() {
+    if (mRaf != null) {
+      try {
+        mRaf.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      mRaf = null;
+    }
+  }
+
+  /**
+   * 关闭并删除日志
+   */
+  synchronized void delete() {
+    close();
+    if (mFile.exists()) {
+      mFile.delete();
+    }
+  }
+
+  private void open() throws IOException {
+    if (mRaf == null) {
+      mRaf = new RandomAccessFile(mFile, "rw");
+    }
+  }
+
+  private void append(byte type, int id, long first, long second) throws IOException {
+    if (mRaf == null) {
+      return;
+    }
+    mBuf.clear();
+    encode(mBuf, type, id, first, second);
+    apply(mBuf, 0);
+    mRaf.write(mBuf.array(), 0, RECORD_SIZE);
+    mRecordNum++;
+    if (mRecordNum > COMPACT_NUM && mRecordNum > mSegments.size() * 4) {
+      //重新计数，压缩失败时等再追加COMPACT_NUM条记录后才重试，不会每次写入都压缩
+      mRecordNum = 0;
+      compact();
+    }
+  }
+
+  /**
+   * 将记录写入缓冲区当前位置
+   */
+  private void encode(ByteBuffer buf, byte type, int id, long first, long second) {
+    int offset = buf.position();
+    buf.put(type).putInt(id).putLong(first).putLong(second);
+    mCrc.reset();
+    mCrc.update(buf.array(), offset, CRC_OFFSET);
+    buf.putInt((int) mCrc.getValue());
+  }
+
+  /**
+   * 校验并应用记录
+   *
+   * @param offset 记录在缓冲区中的位置
+   * @return {@code false} 记录已损坏
+   */
+  private boolean apply(ByteBuffer buf, int offset) {
+    mCrc.reset();
+    mCrc.update(buf.array(), offset, CRC_OFFSET);
+    if (buf.getInt(offset + CRC_OFFSET) != (int) mCrc.getValue()) {
+      return false;
+    }
+    byte type = buf.get(offset);
+    int id = buf.getInt(offset + 1);
+    long first = buf.getLong(offset + 5);
+    long second = buf.getLong(offset + 13);
+    Segment seg = mSegments.get(id);
+    switch (type) {
+      case TYPE_SEGMENT:
+        if (seg == null) {
+          seg = new Segment();
+          seg.record = first;
+          mSegments.put(id, seg);
+        }
+        seg.startL = first;
+        seg.endL = second;
+        return true;
+      case TYPE_RECORD:
+        if (seg != null) {
+          seg.record = first;
+        }
+        return true;
+      case TYPE_SPLIT:
+        if (seg != null) {
+          seg.endL = first;
+        }
+        return true;
+      case TYPE_COMPLETE:
+        if (seg != null) {
+          seg.isComplete = true;
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * 压缩日志，先将每个分段的最新状态写入临时文件，再替换原日志
+   */
+  private void compact() throws IOException {
+    int num = mSegments.size();
+    ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + num * RECORD_SIZE * 2);
+    buf.putInt(MAGIC);
+    int recordNum = 0;
+    for (int i = 0; i < num; i++) {
+      int id = mSegments.keyAt(i);
+      Segment seg = mSegments.valueAt(i);
+      encode(buf, TYPE_SEGMENT, id, seg.startL, seg.endL);
+      recordNum++;
+      if (seg.isComplete) {
+        encode(buf, TYPE_COMPLETE, id, 0, 0);
+        recordNum++;
+      } else if (seg.record > seg.startL) {
+        encode(buf, TYPE_RECORD, id, seg.record, 0);
+        recordNum++;
+      }
+    }
+    File temp = new File(mFile.getPath() + ".tmp");
+    RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+    try {
+      raf.setLength(0);
+      raf.write(buf.array(), 0, buf.position());
+      raf.getFD().sync();
+    } finally {
+      raf.close();
+    }
+    mRaf.close();
+    mRaf = null;
+    if (temp.renameTo(mFile)) {
+      mRecordNum = recordNum;
+    } else {
+      Log.e(TAG, "断点记录【" + mFile.getName() + "】压缩失败");
+      temp.delete();
+    }
+    open();
+    mRaf.seek(mRaf.length());
+  }
+}
@@ -13,12 +13,19 @@ final class ChildThreadConfigEntity {
   long FILE_SIZE;
   //子线程启动下载位置
   long START_LOCATION;
-  //子线程结束下载位置
-  long END_LOCATION;
+  //子线程结束下载位置，分段被拆分时会被其它线程修改
+  volatile long END_LOCATION;
   //下载路径
   File TEMP_FILE;
   String DOWNLOAD_URL;
-  String CONFIG_FILE_PATH;
+  //断点记录日志
+  CheckpointJournal JOURNAL;
   DownloadTaskEntity DOWNLOAD_TASK_ENTITY;
+  //任务限速器
+  SpeedLimiter TASK_LIMITER;
+  //任务组限速器，不是任务组的子任务时为null
+  SpeedLimiter GROUP_LIMITER;
+  //自适应线程数控制器，不支持断点的任务为null
+  ThreadNumController CONTROLLER;
   boolean IS_SUPPORT_BREAK_POINT = true;
 }
\ No newline at end of file
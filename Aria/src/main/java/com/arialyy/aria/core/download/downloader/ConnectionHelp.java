@@ -18,13 +18,12 @@ package com.arialyy.aria.core.download.downloader;
 import com.arialyy.aria.core.download.DownloadTaskEntity;
 import com.arialyy.aria.util.SSLContextUtil;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.Set;
 import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 
 /**
@@ -33,29 +32,82 @@ import javax.net.ssl.SSLSocketFactory;
  */
 class ConnectionHelp {
   /**
-   * 处理链接
+   * 可以直接读取完并复用连接的最大响应长度
+   */
+  private static final int MAX_CONSUME_LEN = 8 * 1024;
+
+  /**
+   * 处理下载分段的链接，连接从{@link HttpConnectionPool}获取，使用完成后需要调用{@link #release}释放
    *
+   * @param waitTimeOut host的连接数已满时等待的超时时间，单位：毫秒
    * @throws IOException
    */
-  static HttpURLConnection handleConnection(URL url) throws IOException {
-    HttpURLConnection conn;
-    URLConnection urlConn = url.openConnection();
-    if (urlConn instanceof HttpsURLConnection) {
-      conn = (HttpsURLConnection) urlConn;
-      SSLContext sslContext =
-          SSLContextUtil.getSSLContext(SSLContextUtil.CA_ALIAS, SSLContextUtil.CA_PATH);
-      if (sslContext == null) {
-        sslContext = SSLContextUtil.getDefaultSLLContext();
+  static HttpURLConnection handleConnection(URL url, int waitTimeOut) throws IOException {
+    return handleConnection(url, false, waitTimeOut);
+  }
+
+  /**
+   * 处理获取文件信息的链接，使用单独的连接数限制
+   *
+   * @param waitTimeOut host的连接数已满时等待的超时时间，单位：毫秒
+   */
+  static HttpURLConnection handleProbeConnection(URL url, int waitTimeOut) throws IOException {
+    return handleConnection(url, true, waitTimeOut);
+  }
+
+  private static HttpURLConnection handleConnection(URL url, boolean isProbe, int waitTimeOut)
+      throws IOException {
+    HttpURLConnection conn = HttpConnectionPool.getInstance().open(url, isProbe, waitTimeOut);
+    if (conn instanceof HttpsURLConnection) {
+      SSLSocketFactory ssf =
+          SSLContextUtil.getSocketFactory(SSLContextUtil.CA_ALIAS, SSLContextUtil.CA_PATH);
+      if (ssf != null) {
+        ((HttpsURLConnection) conn).setSSLSocketFactory(ssf);
       }
-      SSLSocketFactory ssf = sslContext.getSocketFactory();
-      ((HttpsURLConnection) conn).setSSLSocketFactory(ssf);
       ((HttpsURLConnection) conn).setHostnameVerifier(SSLContextUtil.HOSTNAME_VERIFIER);
-    } else {
-      conn = (HttpURLConnection) urlConn;
     }
     return conn;
   }
 
+  /**
+   * 释放连接
+   *
+   * @param isConsumed {@code true} 响应内容已经全部读取并关闭了输入流，连接可以被复用
+   */
+  static void release(HttpURLConnection conn, boolean isConsumed) {
+    HttpConnectionPool.getInstance().release(conn, isConsumed);
+  }
+
+  /**
+   * 读取完较短的响应内容并关闭输入流，使连接可以被复用
+   *
+   * @return {@code true} 响应内容已经全部读取
+   */
+  static boolean consumeContent(HttpURLConnection conn) {
+    int len = conn.getContentLength();
+    if (len < 0 || len > MAX_CONSUME_LEN) {
+      return false;
+    }
+    InputStream is = null;
+    try {
+      is = conn.getInputStream();
+      byte[] buffer = new byte[Math.max(len, 1)];
+      while (is.read(buffer) != -1) {
+      }
+      return true;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      if (is != null) {
+        try {
+          is.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
   /**
    * 设置头部参数
    *
@@ -16,7 +16,11 @@
 package com.arialyy.aria.core.download.downloader;
 
 import android.util.SparseArray;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.ExecutorManager;
+import com.arialyy.aria.core.ProgressTicker;
 import com.arialyy.aria.core.download.DownloadEntity;
+import com.arialyy.aria.core.download.DownloadGroupEntity;
 import com.arialyy.aria.core.download.DownloadGroupTaskEntity;
 import com.arialyy.aria.core.download.DownloadTaskEntity;
 import com.arialyy.aria.core.inf.IEntity;
@@ -27,10 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by AriaL on 2017/6/30.
@@ -41,14 +42,15 @@ public class DownloadGroupUtil implements IDownloadUtil {
   /**
    * 任务组所有任务总大小
    */
-  private long mTotalSize = 0;
-  private long mCurrentLocation = 0;
-  private ExecutorService mInfoPool;
-  private ExecutorService mExePool;
+  private volatile long mTotalSize = 0;
+  //只由构造函数和进度定时器修改
+  private volatile long mCurrentLocation = 0;
+  private ExecutorManager mExecutors;
   private IDownloadListener mListener;
   private DownloadGroupTaskEntity mTaskEntity;
   private boolean isRunning = true;
-  private Timer mTimer;
+  private volatile ProgressTicker.Ticket mTicket;
+  private long mProgressInterval = ProgressTicker.DEFAULT_INTERVAL;
   /**
    * 初始化完成的任务书数
    */
@@ -70,7 +72,7 @@ public class DownloadGroupUtil implements IDownloadUtil {
   /**
    * 下载器映射表，key为下载地址
    */
-  private Map<String, Downloader> mDownloaderMap = new HashMap<>();
+  private Map<String, Downloader> mDownloaderMap = new ConcurrentHashMap<>();
 
   /**
    * 文件信息回调组
@@ -86,12 +88,20 @@ public class DownloadGroupUtil implements IDownloadUtil {
   private int mFailNum = 0;
   //实际的下载任务数
   private int mActualTaskNum = 0;
+  //任务组限速器，所有子任务共用
+  private SpeedLimiter mLimiter = new SpeedLimiter();
+  /**
+   * 未完成子任务的文件长度，key为下载地址；获取到文件信息前使用上一次记录的长度估算任务组的总长度
+   */
+  private Map<String, Long> mChildSizes = new HashMap<>();
+  //进度流程是否已经开始
+  private boolean isFlowStarted = false;
+  private boolean isComplete = false;
 
   public DownloadGroupUtil(IDownloadListener listener, DownloadGroupTaskEntity taskEntity) {
     mListener = listener;
     mTaskEntity = taskEntity;
-    mInfoPool = Executors.newCachedThreadPool();
-    mExePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    mExecutors = AriaManager.getInstance(AriaManager.APP).getExecutorManager();
     mActualTaskNum = mTaskEntity.entity.getSubTask().size();
     List<DownloadTaskEntity> tasks =
         DbEntity.findDatas(DownloadTaskEntity.class, "groupName=?", mTaskEntity.key);
@@ -110,10 +120,33 @@ public class DownloadGroupUtil implements IDownloadUtil {
       } else {
         mExeMap.put(entity.getDownloadUrl(), createChildDownloadTask(entity));
         mCurrentLocation += entity.getCurrentProgress();
+        if (entity.getFileSize() > 0) {
+          mChildSizes.put(entity.getDownloadUrl(), entity.getFileSize());
+          mTotalSize += entity.getFileSize();
+        }
       }
     }
   }
 
+  /**
+   * 设置任务组的最大下载速度，单位：kb，为0表示不限速；
+   * 只对本次下载有效，任务组每次启动时使用配置中的groupMaxSpeed
+   */
+  public void setMaxSpeed(double maxSpeed) {
+    mLimiter.setMaxSpeed(maxSpeed);
+  }
+
+  /**
+   * 设置进度回调间隔，单位：毫秒
+   */
+  public void setProgressInterval(long interval) {
+    mProgressInterval = interval;
+    ProgressTicker.Ticket ticket = mTicket;
+    if (ticket != null) {
+      ticket.setInterval(interval);
+    }
+  }
+
   @Override public long getFileSize() {
     return mTotalSize;
   }
@@ -130,12 +163,6 @@ public class DownloadGroupUtil implements IDownloadUtil {
     isRunning = false;
     closeTimer();
     mListener.onCancel();
-    if (!mInfoPool.isShutdown()) {
-      mInfoPool.shutdown();
-    }
-    if (!mExePool.isShutdown()) {
-      mExePool.shutdown();
-    }
 
     Set<String> keys = mDownloaderMap.keySet();
     for (String key : keys) {
@@ -164,12 +191,6 @@ public class DownloadGroupUtil implements IDownloadUtil {
     isRunning = false;
     closeTimer();
     mListener.onStop(mCurrentLocation);
-    if (!mInfoPool.isShutdown()) {
-      mInfoPool.shutdown();
-    }
-    if (!mExePool.isShutdown()) {
-      mExePool.shutdown();
-    }
 
     Set<String> keys = mDownloaderMap.keySet();
     for (String key : keys) {
@@ -182,12 +203,17 @@ public class DownloadGroupUtil implements IDownloadUtil {
 
   @Override public void startDownload() {
     isRunning = true;
+    synchronized (this) {
+      isFlowStarted = false;
+    }
+    mLimiter.setMaxSpeed(
+        AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getGroupMaxSpeed());
     Set<String> keys = mExeMap.keySet();
     mListener.onPre();
     for (String key : keys) {
       DownloadTaskEntity taskEntity = mExeMap.get(key);
       if (taskEntity != null) {
-        mInfoPool.execute(createFileInfoThread(taskEntity));
+        executeFileInfoThread(taskEntity, ExecutorManager.PRIORITY_NORMAL);
       }
     }
   }
@@ -197,6 +223,23 @@ public class DownloadGroupUtil implements IDownloadUtil {
     mListener.onResume(mCurrentLocation);
   }
 
+  /**
+   * 在共享的文件信息线程池中获取文件信息，任务组停止后排队中的任务不再执行
+   *
+   * @param priority 优先级，重试的任务使用较低的优先级，避免阻塞其它子任务
+   */
+  private void executeFileInfoThread(DownloadTaskEntity taskEntity, int priority) {
+    final FileInfoThread thread = createFileInfoThread(taskEntity);
+    String host = CommonUtil.getHost(taskEntity.getEntity().getDownloadUrl());
+    mExecutors.executeProbe(host, new Runnable() {
+      @Override public void run() {
+        if (isRunning) {
+          thread.run();
+        }
+      }
+    }, priority);
+  }
+
   /**
    * 创建文件信息获取线程
    */
@@ -209,14 +252,17 @@ public class DownloadGroupUtil implements IDownloadUtil {
 
         @Override public void onComplete(String url, int code) {
           DownloadTaskEntity te = mExeMap.get(url);
+          synchronized (DownloadGroupUtil.this) {
+            if (te != null) {
+              updateChildSize(url, te.getEntity().getFileSize());
+            }
+            mInitNum++;
+          }
+          //不需要等待其它子任务的文件信息，第一个子任务获取成功后就开始进度流程
+          startRunningFlow();
           if (te != null) {
-            mTotalSize += te.getEntity().getFileSize();
             startChildDownload(te);
           }
-          mInitNum++;
-          if (mInitNum + mInitFailNum == mTaskEntity.getEntity().getSubTask().size()) {
-            startRunningFlow();
-          }
         }
 
         @Override public void onFail(String url, String errorMsg) {
@@ -228,16 +274,26 @@ public class DownloadGroupUtil implements IDownloadUtil {
           //404链接不重试下载
           if (failNum < 10 && !errorMsg.contains("错误码：404") && !errorMsg.contains(
               "UnknownHostException")) {
-            mInfoPool.execute(createFileInfoThread(te));
+            executeFileInfoThread(te, ExecutorManager.PRIORITY_LOW);
           } else {
-            mInitFailNum++;
-            mActualTaskNum--;
-            if (mActualTaskNum < 0) mActualTaskNum = 0;
+            boolean isComplete;
+            synchronized (DownloadGroupUtil.this) {
+              mInitFailNum++;
+              mActualTaskNum--;
+              if (mActualTaskNum < 0) mActualTaskNum = 0;
+              if (te != null) {
+                updateChildSize(url, 0);
+              }
+              isComplete = mInitNum + mInitFailNum >= mTaskEntity.getEntity().getSubTask().size();
+            }
+            //所有子任务都获取失败时，也需要进入进度流程
+            if (isComplete) {
+              startRunningFlow();
+            }
+            //其它子任务可能已经下载完成
+            checkGroupComplete();
           }
           failNum++;
-          if (mInitNum + mInitFailNum == mTaskEntity.getEntity().getSubTask().size()) {
-            startRunningFlow();
-          }
         }
       };
     }
@@ -245,27 +301,89 @@ public class DownloadGroupUtil implements IDownloadUtil {
   }
 
   private void closeTimer() {
-    if (mTimer != null) {
-      mTimer.purge();
-      mTimer.cancel();
+    ProgressTicker.Ticket ticket = mTicket;
+    if (ticket != null) {
+      ticket.cancel();
+      mTicket = null;
     }
   }
 
   /**
-   * 开始进度流程
+   * 更新子任务的文件长度，任务组的总长度随之修正
+   *
+   * @param size 子任务的文件长度，获取失败的子任务为0
+   */
+  private synchronized void updateChildSize(String url, long size) {
+    Long old = mChildSizes.put(url, size);
+    mTotalSize += size - (old == null ? 0 : old);
+  }
+
+  /**
+   * 开始进度流程，每次启动只执行一次；总长度在子任务获取到文件信息后会不断修正
    */
   private void startRunningFlow() {
+    synchronized (this) {
+      if (isFlowStarted || !isRunning) {
+        return;
+      }
+      isFlowStarted = true;
+    }
     closeTimer();
     mListener.onPostPre(mTotalSize);
     mListener.onStart(mCurrentLocation);
-    mTimer = new Timer(true);
-    mTimer.schedule(new TimerTask() {
+    mTicket = AriaManager.getInstance(AriaManager.APP).getProgressTicker().register(new Runnable() {
+      private long lastTotalSize = mTotalSize;
+
       @Override public void run() {
-        if (mCurrentLocation >= 0) {
-          mListener.onProgress(mCurrentLocation);
+        long totalSize = mTotalSize;
+        if (totalSize != lastTotalSize) {
+          lastTotalSize = totalSize;
+          DownloadGroupEntity entity = mTaskEntity.getEntity();
+          entity.setFileSize(totalSize);
+          entity.setConvertFileSize(CommonUtil.formatFileSize(totalSize));
         }
+        mCurrentLocation = tickChildren();
+        mListener.onProgress(mCurrentLocation);
+      }
+    }, mProgressInterval);
+  }
+
+  /**
+   * 回调所有正在下载的子任务的进度，并统计任务组的下载位置；
+   * 子任务不再单独创建定时器，下载位置直接读取子任务下载器的计数
+   *
+   * @return 任务组当前的下载位置
+   */
+  private long tickChildren() {
+    long location = 0;
+    for (DownloadEntity entity : mTaskEntity.getEntity().getSubTask()) {
+      Downloader dt = mDownloaderMap.get(entity.getDownloadUrl());
+      if (entity.isComplete()) {
+        location += entity.getFileSize();
+      } else if (dt != null && dt.isDownloading()) {
+        dt.tick();
+        //子任务刚启动、还没有恢复断点时使用上一次记录的进度
+        long current = dt.getCurrentLocation();
+        location += current > 0 ? current : entity.getCurrentProgress();
+      } else {
+        location += entity.getCurrentProgress();
       }
-    }, 0, 1000);
+    }
+    return location;
+  }
+
+  /**
+   * 所有子任务都已经完成或失败时，任务组下载完成
+   */
+  private void checkGroupComplete() {
+    synchronized (this) {
+      if (isComplete || mActualTaskNum == 0 || mCompleteNum + mFailNum < mActualTaskNum) {
+        return;
+      }
+      isComplete = true;
+    }
+    closeTimer();
+    mListener.onComplete();
   }
 
   /**
@@ -274,9 +392,11 @@ public class DownloadGroupUtil implements IDownloadUtil {
   private void startChildDownload(DownloadTaskEntity taskEntity) {
     ChildDownloadListener listener = new ChildDownloadListener(taskEntity);
     Downloader dt = new Downloader(listener, taskEntity);
+    dt.setGroupLimiter(mLimiter);
+    dt.setGroupChild(true);
     mDownloaderMap.put(taskEntity.getEntity().getDownloadUrl(), dt);
-    if (mExePool.isShutdown()) return;
-    mExePool.execute(dt);
+    if (!isRunning) return;
+    dt.startDownload();
   }
 
   /**
@@ -310,6 +430,7 @@ public class DownloadGroupUtil implements IDownloadUtil {
     DownloadEntity entity;
 
     long lastLen = 0;
+    long lastTime = 0;
 
     ChildDownloadListener(DownloadTaskEntity entity) {
       this.taskEntity = entity;
@@ -329,17 +450,25 @@ public class DownloadGroupUtil implements IDownloadUtil {
     @Override public void onResume(long resumeLocation) {
       saveData(IEntity.STATE_POST_PRE, IEntity.STATE_RUNNING);
       lastLen = resumeLocation;
+      lastTime = System.currentTimeMillis();
     }
 
     @Override public void onStart(long startLocation) {
       saveData(IEntity.STATE_POST_PRE, IEntity.STATE_RUNNING);
       lastLen = startLocation;
+      lastTime = System.currentTimeMillis();
     }
 
     @Override public void onProgress(long currentLocation) {
-      long speed = currentLocation - lastLen;
-      mCurrentLocation += speed;
+      //进度回调间隔可以修改，速度统一换算为每秒的字节数
+      long now = System.currentTimeMillis();
+      long time = now - lastTime;
+      if (time <= 0) {
+        return;
+      }
+      long speed = (currentLocation - lastLen) * 1000 / time;
       lastLen = currentLocation;
+      lastTime = now;
       entity.setCurrentProgress(currentLocation);
       handleSpeed(speed);
     }
@@ -356,11 +485,10 @@ public class DownloadGroupUtil implements IDownloadUtil {
 
     @Override public void onComplete() {
       saveData(IEntity.STATE_COMPLETE, entity.getFileSize());
-      mCompleteNum++;
-      if (mCompleteNum + mFailNum >= mActualTaskNum) {
-        closeTimer();
-        mListener.onComplete();
+      synchronized (DownloadGroupUtil.this) {
+        mCompleteNum++;
       }
+      checkGroupComplete();
       handleSpeed(0);
     }
 
@@ -379,7 +507,10 @@ public class DownloadGroupUtil implements IDownloadUtil {
         Downloader dt = mDownloaderMap.get(entity.getDownloadUrl());
         dt.startDownload();
       } else {
-        mFailNum++;
+        synchronized (DownloadGroupUtil.this) {
+          mFailNum++;
+        }
+        checkGroupComplete();
       }
     }
 
@@ -394,10 +525,11 @@ public class DownloadGroupUtil implements IDownloadUtil {
       if (entity.isComplete()) {
         entity.setCompleteTime(System.currentTimeMillis());
         entity.setCurrentProgress(entity.getFileSize());
+        entity.update();
       } else {
         entity.setCurrentProgress(location);
+        entity.postUpdate();
       }
-      entity.update();
     }
   }
 }
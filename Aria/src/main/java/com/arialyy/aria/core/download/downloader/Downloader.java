@@ -19,6 +19,8 @@ import android.content.Context;
 import android.util.Log;
 import android.util.SparseArray;
 import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.LimitedExecutor;
+import com.arialyy.aria.core.ProgressTicker;
 import com.arialyy.aria.core.download.DownloadEntity;
 import com.arialyy.aria.core.download.DownloadTaskEntity;
 import com.arialyy.aria.orm.DbEntity;
@@ -26,12 +28,9 @@ import com.arialyy.aria.util.BufferedRandomAccessFile;
 import com.arialyy.aria.util.CommonUtil;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Created by AriaL on 2017/7/1.
@@ -42,20 +41,28 @@ class Downloader implements Runnable, IDownloadUtil {
   private IDownloadListener mListener;
   private DownloadTaskEntity mTaskEntity;
   private DownloadEntity mEntity;
-  private ExecutorService mFixedThreadPool;
+  private LimitedExecutor mFixedThreadPool;
   private File mConfigFile;//下载信息配置文件
+  private CheckpointJournal mJournal;
+  private SparseArray<CheckpointJournal.Segment> mSegments;
   private Context mContext;
   private File mTempFile; //下载的文件
   private boolean isNewTask = true;
-  private int mThreadNum, mRealThreadNum;
+  private int mThreadNum;
   private StateConstance mConstance;
-  private SparseArray<Runnable> mTask = new SparseArray<>();
+  private SparseArray<SingleThreadTask> mTask = new SparseArray<>();
+  private SegmentScheduler mScheduler;
+  private ThreadNumController mController;
+  private SpeedLimiter mLimiter;
+  private SpeedLimiter mGroupLimiter;
 
   /**
    * 小于1m的文件不启用多线程
    */
   private static final long SUB_LEN = 1024 * 1024;
-  private Timer mTimer;
+  private volatile ProgressTicker.Ticket mTicket;
+  private long mProgressInterval = ProgressTicker.DEFAULT_INTERVAL;
+  private boolean isGroupChild = false;
 
   Downloader(IDownloadListener listener, DownloadTaskEntity taskEntity) {
     mListener = listener;
@@ -63,15 +70,22 @@ class Downloader implements Runnable, IDownloadUtil {
     mEntity = mTaskEntity.getEntity();
     mContext = AriaManager.APP;
     mConstance = new StateConstance();
+    mLimiter = new SpeedLimiter(
+        AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMsxSpeed());
   }
 
+  /**
+   * 设置任务的最大下载速度，单位：kb，为0表示不限速
+   */
   void setMaxSpeed(double maxSpeed) {
-    for (int i = 0; i < mThreadNum; i++) {
-      SingleThreadTask task = (SingleThreadTask) mTask.get(i);
-      if (task != null) {
-        task.setMaxSpeed(maxSpeed);
-      }
-    }
+    mLimiter.setMaxSpeed(maxSpeed);
+  }
+
+  /**
+   * 设置任务组的限速器，任务组的所有子任务共用
+   */
+  void setGroupLimiter(SpeedLimiter limiter) {
+    mGroupLimiter = limiter;
   }
 
   public StateConstance getConstance() {
@@ -93,38 +107,97 @@ class Downloader implements Runnable, IDownloadUtil {
     if (!mTaskEntity.isSupportBP) {
       mThreadNum = 1;
       mConstance.THREAD_NUM = mThreadNum;
+      mFixedThreadPool = createPool(1);
       handleNoSupportBreakpointDownload();
     } else {
-      mThreadNum = isNewTask ? (mEntity.getFileSize() <= SUB_LEN ? 1
-          : AriaManager.getInstance(mContext).getDownloadConfig().getThreadNum()) : mRealThreadNum;
-      mConstance.THREAD_NUM = mThreadNum;
-      mFixedThreadPool = Executors.newFixedThreadPool(mThreadNum);
+      mThreadNum = mEntity.getFileSize() <= SUB_LEN ? 1
+          : AriaManager.getInstance(mContext).getDownloadConfig().getThreadNum();
+      //先以少量线程开始，再根据下载速度调整
+      mFixedThreadPool = createPool(ThreadNumController.getInitThreadNum(getHost(), mThreadNum));
       handleBreakpoint();
     }
-    startTimer();
+    //任务组的子任务由任务组统一获取进度
+    if (!isGroupChild) {
+      startTimer();
+    }
+  }
+
+  /**
+   * 设置进度回调间隔，单位：毫秒
+   */
+  void setProgressInterval(long interval) {
+    mProgressInterval = interval;
+    ProgressTicker.Ticket ticket = mTicket;
+    if (ticket != null) {
+      ticket.setInterval(interval);
+    }
   }
 
   /**
-   * 启动进度获取定时器
+   * 设置为任务组的子任务，子任务不创建自己的进度定时器，由任务组定时调用{@link #tick()}
+   */
+  void setGroupChild(boolean isGroupChild) {
+    this.isGroupChild = isGroupChild;
+  }
+
+  /**
+   * 在共享的进度定时器中注册
    */
   private void startTimer() {
-    mTimer = new Timer(true);
-    mTimer.schedule(new TimerTask() {
+    if (mTicket != null) {
+      mTicket.cancel();
+    }
+    mTicket = AriaManager.getInstance(mContext).getProgressTicker().register(new Runnable() {
       @Override public void run() {
         if (mConstance.isComplete()) {
           closeTimer();
-        } else if (mConstance.CURRENT_LOCATION >= 0) {
-          mListener.onProgress(mConstance.CURRENT_LOCATION);
+        } else {
+          tick();
         }
       }
-    }, 0, 1000);
+    }, mProgressInterval);
+  }
+
+  /**
+   * 回调下载进度，并根据下载速度调整线程数
+   */
+  void tick() {
+    if (mConstance.isComplete()) {
+      return;
+    }
+    long location = mConstance.CURRENT_LOCATION.get();
+    mListener.onProgress(location);
+    if (mController != null) {
+      mController.onTick(location);
+    }
   }
 
   private void closeTimer() {
-    if (mTimer != null) {
-      mTimer.purge();
-      mTimer.cancel();
+    ProgressTicker.Ticket ticket = mTicket;
+    if (ticket != null) {
+      ticket.cancel();
+      mTicket = null;
     }
+    if (mController != null) {
+      mController.close();
+    }
+  }
+
+  /**
+   * 创建分段执行器，分段在共享的下载线程池中执行，线程数可以由{@link ThreadNumController}调整
+   */
+  private LimitedExecutor createPool(int threadNum) {
+    return AriaManager.getInstance(mContext)
+        .getExecutorManager()
+        .createSegmentExecutor(getHost(), threadNum);
+  }
+
+  /**
+   * 获取下载地址的主机名，用于记录每个主机的最佳线程数
+   */
+  private String getHost() {
+    return CommonUtil.getHost(
+        mEntity.isRedirect() ? mEntity.getRedirectUrl() : mEntity.getDownloadUrl());
   }
 
   @Override public long getFileSize() {
@@ -135,7 +208,7 @@ class Downloader implements Runnable, IDownloadUtil {
    * 获取当前下载位置
    */
   @Override public long getCurrentLocation() {
-    return mConstance.CURRENT_LOCATION;
+    return mConstance.CURRENT_LOCATION.get();
   }
 
   @Override public boolean isDownloading() {
@@ -144,32 +217,42 @@ class Downloader implements Runnable, IDownloadUtil {
 
   @Override public void cancelDownload() {
     closeTimer();
-    mConstance.isCancel = true;
-    mConstance.isDownloading = false;
-    if (mFixedThreadPool != null) {
-      mFixedThreadPool.shutdown();
-    }
-    for (int i = 0; i < mThreadNum; i++) {
-      SingleThreadTask task = (SingleThreadTask) mTask.get(i);
-      if (task != null) {
-        task.cancel();
+    synchronized (AriaManager.LOCK) {
+      mConstance.isCancel = true;
+      mConstance.isDownloading = false;
+      if (mFixedThreadPool != null) {
+        mFixedThreadPool.shutdown();
+      }
+      for (int i = 0, len = mTask.size(); i < len; i++) {
+        SingleThreadTask task = mTask.valueAt(i);
+        if (task != null) {
+          task.cancel();
+        }
       }
     }
+    if (mTempFile != null) {
+      FileChannelWriter.invalidate(mTempFile);
+    }
     CommonUtil.delDownloadTaskConfig(mTaskEntity.removeFile, mTaskEntity);
   }
 
   @Override public void stopDownload() {
     closeTimer();
     if (mConstance.isComplete()) return;
-    mConstance.isStop = true;
-    mConstance.isDownloading = false;
-    if (mFixedThreadPool != null) {
-      mFixedThreadPool.shutdown();
-    }
-    for (int i = 0; i < mThreadNum; i++) {
-      SingleThreadTask task = (SingleThreadTask) mTask.get(i);
-      if (task != null) {
-        task.stop();
+    synchronized (AriaManager.LOCK) {
+      mConstance.isStop = true;
+      mConstance.isDownloading = false;
+      if (mFixedThreadPool != null) {
+        mFixedThreadPool.shutdown();
+      }
+      for (int i = 0, len = mTask.size(); i < len; i++) {
+        SingleThreadTask task = mTask.valueAt(i);
+        if (task != null) {
+          task.stop();
+        }
+      }
+      if (mJournal != null) {
+        mJournal.close();
       }
     }
   }
@@ -178,7 +261,7 @@ class Downloader implements Runnable, IDownloadUtil {
    * 直接调用的时候会自动启动线程执行
    */
   @Override public void startDownload() {
-    new Thread(this).start();
+    AriaManager.getInstance(mContext).getExecutorManager().executeFlow(this);
   }
 
   @Override public void resumeDownload() {
@@ -205,12 +288,13 @@ class Downloader implements Runnable, IDownloadUtil {
       isNewTask = true;
       return;
     }
-    mConfigFile = new File(mContext.getFilesDir().getPath()
+    String path = mContext.getFilesDir().getPath()
         + AriaManager.DOWNLOAD_TEMP_DIR
-        + mEntity.getFileName()
-        + ".properties");
+        + mEntity.getFileName();
+    mConfigFile = new File(path + ".journal");
     mTempFile = new File(mEntity.getDownloadPath());
-    if (!mConfigFile.exists()) { //记录文件被删除，则重新下载
+    File legacyFile = new File(path + ".properties");
+    if (!mConfigFile.exists() && !legacyFile.exists()) { //记录文件被删除，则重新下载
       isNewTask = true;
       CommonUtil.createFile(mConfigFile.getPath());
     } else if (!mTempFile.exists()) {
@@ -227,31 +311,89 @@ class Downloader implements Runnable, IDownloadUtil {
    * 检查记录文件，如果是新任务返回{@code true}，否则返回{@code false}
    */
   private boolean checkConfigFile() {
-    Properties pro = CommonUtil.loadConfig(mConfigFile);
-    if (pro.isEmpty()) {
+    try {
+      mSegments = getJournal().load();
+      if (mSegments.size() == 0) {
+        mSegments = loadLegacyConfig();
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "读取断点记录失败\n" + CommonUtil.getPrintException(e));
       return true;
     }
-    Set<Object> keys = pro.keySet();
+    if (mSegments.size() == 0) {
+      return true;
+    }
+    //所有分段需要覆盖整个文件
+    long len = 0;
+    for (int i = 0, num = mSegments.size(); i < num; i++) {
+      CheckpointJournal.Segment seg = mSegments.valueAt(i);
+      len += seg.endL - seg.startL;
+    }
+    return len != mEntity.getFileSize();
+  }
+
+  private CheckpointJournal getJournal() {
+    if (mJournal == null) {
+      mJournal = new CheckpointJournal(mConfigFile,
+          AriaManager.getInstance(mContext).getExecutorManager().getDiskExecutor());
+    }
+    return mJournal;
+  }
+
+  /**
+   * 旧版本使用properties文件记录每条线程的下载位置，将其转换为断点记录日志。
+   * 旧记录在日志写入成功后才删除，记录无效时按新任务处理
+   */
+  private SparseArray<CheckpointJournal.Segment> loadLegacyConfig() throws IOException {
+    File legacyFile = new File(mConfigFile.getParent(), mEntity.getFileName() + ".properties");
+    if (!legacyFile.exists()) {
+      return new SparseArray<>();
+    }
+    Properties pro = CommonUtil.loadConfig(legacyFile);
+    String name = mTempFile.getName();
     int num = 0;
-    for (Object key : keys) {
+    for (Object key : pro.keySet()) {
       if (String.valueOf(key).contains("_record_")) {
         num++;
       }
     }
     if (num == 0) {
-      return true;
+      return new SparseArray<>();
     }
-    mRealThreadNum = num;
-    for (int i = 0; i < mRealThreadNum; i++) {
-      if (pro.getProperty(mTempFile.getName() + "_record_" + i) == null) {
-        Object state = pro.getProperty(mTempFile.getName() + "_state_" + i);
-        if (state != null && Integer.parseInt(state + "") == 1) {
-          continue;
+    //先解析全部记录，-1表示该线程已完成
+    long[] records = new long[num];
+    try {
+      for (int i = 0; i < num; i++) {
+        String state = pro.getProperty(name + "_state_" + i);
+        String record = pro.getProperty(name + "_record_" + i);
+        if (state != null && Integer.parseInt(state) == 1) {
+          records[i] = -1;
+        } else if (record != null) {
+          records[i] = Long.parseLong(record);
+        } else {
+          return new SparseArray<>();
         }
-        return true;
       }
+    } catch (NumberFormatException e) {
+      Log.e(TAG, "旧版断点记录无效\n" + CommonUtil.getPrintException(e));
+      return new SparseArray<>();
     }
-    return false;
+    long fileLength = mEntity.getFileSize();
+    long blockSize = fileLength / num;
+    mJournal.reset();
+    for (int i = 0; i < num; i++) {
+      long startL = i * blockSize;
+      //最后一个线程的结束位置即为文件的总长度
+      long endL = i == num - 1 ? fileLength : (i + 1) * blockSize;
+      mJournal.writeSegment(i, startL, endL);
+      if (records[i] == -1) {
+        mJournal.writeComplete(i);
+      } else {
+        mJournal.writeRecord(i, records[i]);
+      }
+    }
+    legacyFile.delete();
+    return mJournal.getSegments();
   }
 
   /**
@@ -260,15 +402,13 @@ class Downloader implements Runnable, IDownloadUtil {
    * @return true 表示下载完成
    */
   private boolean resumeRecordLocation(int i, long startL, long endL) {
-    mConstance.CURRENT_LOCATION += endL - startL;
+    mConstance.CURRENT_LOCATION.addAndGet(endL - startL);
     Log.d(TAG, "++++++++++ 线程_" + i + "_已经下载完成 ++++++++++");
     mConstance.COMPLETE_THREAD_NUM++;
     mConstance.STOP_NUM++;
     mConstance.CANCEL_NUM++;
     if (mConstance.isComplete()) {
-      if (mConfigFile.exists()) {
-        mConfigFile.delete();
-      }
+      mJournal.delete();
       mListener.onComplete();
       mConstance.isDownloading = false;
       return true;
@@ -288,28 +428,35 @@ class Downloader implements Runnable, IDownloadUtil {
     entity.THREAD_ID = i;
     entity.START_LOCATION = startL;
     entity.END_LOCATION = endL;
-    entity.CONFIG_FILE_PATH = mConfigFile.getPath();
+    entity.JOURNAL = mJournal;
     entity.IS_SUPPORT_BREAK_POINT = mTaskEntity.isSupportBP;
     entity.DOWNLOAD_TASK_ENTITY = mTaskEntity;
-    SingleThreadTask task = new SingleThreadTask(mConstance, mListener, entity);
+    entity.TASK_LIMITER = mLimiter;
+    entity.GROUP_LIMITER = mGroupLimiter;
+    entity.CONTROLLER = mController;
+    SingleThreadTask task = new SingleThreadTask(mConstance, mListener, entity, mScheduler);
     mTask.put(i, task);
+    mScheduler.addTask(task);
   }
 
   /**
    * 启动单线程下载任务
+   *
+   * @param ids 需要下载的分段id
    */
-  private void startSingleTask(int[] recordL) {
-    if (mConstance.CURRENT_LOCATION > 0) {
-      mListener.onResume(mConstance.CURRENT_LOCATION);
+  private void startSingleTask(List<Integer> ids) {
+    long location = mConstance.CURRENT_LOCATION.get();
+    if (location > 0) {
+      mListener.onResume(location);
     } else {
-      mListener.onStart(mConstance.CURRENT_LOCATION);
+      mListener.onStart(location);
     }
-    mFixedThreadPool = Executors.newFixedThreadPool(recordL.length);
-    for (int l : recordL) {
-      if (l == -1) continue;
-      Runnable task = mTask.get(l);
-      if (task != null) {
-        mFixedThreadPool.execute(task);
+    synchronized (AriaManager.LOCK) {
+      for (int id : ids) {
+        SingleThreadTask task = mTask.get(id);
+        if (task != null) {
+          mFixedThreadPool.execute(task);
+        }
       }
     }
   }
@@ -319,51 +466,82 @@ class Downloader implements Runnable, IDownloadUtil {
    */
   private void handleBreakpoint() {
     long fileLength = mEntity.getFileSize();
-    Properties pro = CommonUtil.loadConfig(mConfigFile);
-    int blockSize = (int) (fileLength / mThreadNum);
-    int[] recordL = new int[mThreadNum];
-    for (int i = 0; i < mThreadNum; i++) {
-      recordL[i] = -1;
-    }
-    int rl = 0;
     if (isNewTask) {
       createNewFile(fileLength);
+      try {
+        mSegments = createSegments(fileLength);
+      } catch (IOException e) {
+        failDownload("创建断点记录失败【filePath:"
+            + mConfigFile.getPath()
+            + "】\n"
+            + CommonUtil.getPrintException(e));
+        return;
+      }
     }
-    for (int i = 0; i < mThreadNum; i++) {
-      long startL = i * blockSize, endL = (i + 1) * blockSize;
-      Object state = pro.getProperty(mTempFile.getName() + "_state_" + i);
-      if (state != null && Integer.parseInt(state + "") == 1) {  //该线程已经完成
-        if (resumeRecordLocation(i, startL, endL)) return;
+    int num = mSegments.size();
+    mConstance.THREAD_NUM = num;
+    //清除上一次运行的下载线程
+    mTask.clear();
+    mScheduler = new SegmentScheduler(mConstance, mJournal, mTempFile.getName(),
+        mSegments.keyAt(num - 1) + 1, mSplitCallback);
+    mController = new ThreadNumController(getHost(), mFixedThreadPool.getMaxNum(), mThreadNum,
+        mFixedThreadPool, mScheduler, mConstance);
+    List<Integer> startIds = new ArrayList<>();
+    for (int i = 0; i < num; i++) {
+      int id = mSegments.keyAt(i);
+      CheckpointJournal.Segment seg = mSegments.valueAt(i);
+      if (seg.isComplete) {  //该分段已经完成
+        if (resumeRecordLocation(id, seg.startL, seg.endL)) return;
         continue;
       }
-      //分配下载位置
-      Object record = pro.getProperty(mTempFile.getName() + "_record_" + i);
+      long startL = seg.startL;
       //如果有记录，则恢复下载
-      if (!isNewTask && record != null && Long.parseLong(record + "") >= 0) {
-        Long r = Long.parseLong(record + "");
-        mConstance.CURRENT_LOCATION += r - startL;
-        Log.d(TAG, "任务【" + mEntity.getFileName() + "】线程__" + i + "__恢复下载");
-        mListener.onChildResume(r);
-        startL = r;
-        recordL[rl] = i;
-        rl++;
-      } else {
-        recordL[rl] = i;
-        rl++;
+      if (!isNewTask && seg.record > seg.startL) {
+        mConstance.CURRENT_LOCATION.addAndGet(seg.record - seg.startL);
+        Log.d(TAG, "任务【" + mEntity.getFileName() + "】分段__" + id + "__恢复下载");
+        mListener.onChildResume(seg.record);
+        startL = seg.record;
       }
-      if (i == (mThreadNum - 1)) {
-        //最后一个线程的结束位置即为文件的总长度
-        endL = fileLength;
-      }
-      addSingleTask(i, startL, endL, fileLength);
+      addSingleTask(id, startL, seg.endL, fileLength);
+      startIds.add(id);
+    }
+    startSingleTask(startIds);
+  }
+
+  /**
+   * 切分新任务的分段，并将分段信息写入断点记录日志
+   */
+  private SparseArray<CheckpointJournal.Segment> createSegments(long fileLength)
+      throws IOException {
+    CheckpointJournal journal = getJournal();
+    journal.reset();
+    int num = SegmentScheduler.getSegmentNum(fileLength, mThreadNum);
+    long blockSize = fileLength / num;
+    for (int i = 0; i < num; i++) {
+      long startL = i * blockSize;
+      long endL = i == num - 1 ? fileLength : (i + 1) * blockSize;
+      journal.writeSegment(i, startL, endL);
     }
-    startSingleTask(recordL);
+    return journal.getSegments();
   }
 
+  /**
+   * 分段被拆分后，为新的分段创建下载线程，该回调在{@link AriaManager#LOCK}中执行
+   */
+  private SegmentScheduler.OnSplitCallback mSplitCallback = new SegmentScheduler.OnSplitCallback() {
+    @Override public void onSplit(int segmentId, long startL, long endL) {
+      mConstance.THREAD_NUM++;
+      addSingleTask(segmentId, startL, endL, mEntity.getFileSize());
+      mFixedThreadPool.execute(mTask.get(segmentId));
+    }
+  };
+
   /**
    * 创建新的下载文件
    */
   private void createNewFile(long fileLength) {
+    //旧文件的通道可能还未关闭，新文件需要使用新的通道
+    FileChannelWriter.invalidate(mTempFile);
     CommonUtil.createFile(mTempFile.getPath());
     BufferedRandomAccessFile file = null;
     try {
@@ -401,10 +579,12 @@ class Downloader implements Runnable, IDownloadUtil {
     entity.THREAD_ID = 0;
     entity.START_LOCATION = 0;
     entity.END_LOCATION = entity.FILE_SIZE;
-    entity.CONFIG_FILE_PATH = mConfigFile.getPath();
     entity.IS_SUPPORT_BREAK_POINT = mTaskEntity.isSupportBP;
     entity.DOWNLOAD_TASK_ENTITY = mTaskEntity;
+    entity.TASK_LIMITER = mLimiter;
+    entity.GROUP_LIMITER = mGroupLimiter;
     SingleThreadTask task = new SingleThreadTask(mConstance, mListener, entity);
+    mTask.clear();
     mTask.put(0, task);
     mFixedThreadPool.execute(task);
     mListener.onPostPre(len);
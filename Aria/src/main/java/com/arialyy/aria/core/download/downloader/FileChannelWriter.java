@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 使用{@link FileChannel}按位置写文件
+ * 同一个文件的所有下载线程共用一个FileChannel，数据通过direct buffer写入，
+ * 写入时不同步磁盘，只在保存断点和文件关闭时调用{@link FileChannel#force(boolean)}
+ */
+final class FileChannelWriter implements IFileWriter {
+  private static final Map<String, SharedChannel> CHANNELS = new HashMap<>();
+
+  private SharedChannel mShared;
+  private ByteBuffer mBuffer;
+  private long mPosition;
+
+  /**
+   * 被多个下载线程共用的文件通道
+   */
+  private static final class SharedChannel {
+    String path;
+    RandomAccessFile file;
+    FileChannel channel;
+    int refCount;
+  }
+
+  FileChannelWriter(File file, long position, int bufSize) throws IOException {
+    mShared = acquire(file);
+    mPosition = position;
+    boolean success = false;
+    try {
+      mBuffer = BufferPool.obtainBuffer(bufSize);
+      success = true;
+    } finally {
+      if (!success) {
+        SharedChannel shared = mShared;
+        mShared = null;
+        release(shared);
+      }
+    }
+  }
+
+  /**
+   * 文件被删除或重新创建时调用，之后的写入会打开新的文件通道；
+   * 正在使用旧通道的线程不受影响，全部关闭后旧通道才被关闭
+   */
+  static void invalidate(File file) {
+    synchronized (CHANNELS) {
+      CHANNELS.remove(file.getPath());
+    }
+  }
+
+  private static SharedChannel acquire(File file) throws IOException {
+    String path = file.getPath();
+    synchronized (CHANNELS) {
+      SharedChannel shared = CHANNELS.get(path);
+      if (shared == null) {
+        shared = new SharedChannel();
+        shared.path = path;
+        shared.file = new RandomAccessFile(file, "rw");
+        shared.channel = shared.file.getChannel();
+        CHANNELS.put(path, shared);
+      }
+      shared.refCount++;
+      return shared;
+    }
+  }
+
+  private static void release(SharedChannel shared) throws IOException {
+    synchronized (CHANNELS) {
+      shared.refCount--;
+      if (shared.refCount > 0) {
+        return;
+      }
+      if (CHANNELS.get(shared.path) == shared) {
+        CHANNELS.remove(shared.path);
+      }
+      try {
+        shared.channel.force(false);
+      } finally {
+        shared.file.close();
+      }
+    }
+  }
+
+  @Override public void write(byte[] buffer, int offset, int len) throws IOException {
+    while (len > 0) {
+      int n = Math.min(len, mBuffer.capacity());
+      mBuffer.clear();
+      mBuffer.put(buffer, offset, n);
+      mBuffer.flip();
+      while (mBuffer.hasRemaining()) {
+        mPosition += mShared.channel.write(mBuffer, mPosition);
+      }
+      offset += n;
+      len -= n;
+    }
+  }
+
+  @Override public void checkpoint() throws IOException {
+    mShared.channel.force(false);
+  }
+
+  @Override public void close() throws IOException {
+    if (mShared == null) {
+      return;
+    }
+    BufferPool.recycle(mBuffer);
+    mBuffer = null;
+    SharedChannel shared = mShared;
+    mShared = null;
+    release(shared);
+  }
+}
@@ -31,10 +31,18 @@ import java.net.URLDecoder;
  */
 class FileInfoThread implements Runnable {
   private final String TAG = "FileInfoThread";
+  /**
+   * 请求的范围不能满足，文件长度为0时服务器不能返回第一个字节
+   */
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
   private DownloadEntity mEntity;
   private DownloadTaskEntity mTaskEntity;
   private int mConnectTimeOut;
   private OnFileInfoCallback onFileInfoListener;
+  //30x跳转时服务器返回的cookie
+  private String mCookies;
+  //服务器没有返回Content-Range时，使用bytes=0-重新请求，从Content-Length获取文件长度
+  private boolean isFullRange = false;
 
   interface OnFileInfoCallback {
     /**
@@ -61,15 +69,11 @@ class FileInfoThread implements Runnable {
   }
 
   @Override public void run() {
-    HttpURLConnection conn = null;
+    String url = mEntity.getDownloadUrl();
     try {
-      URL url = new URL(mEntity.getDownloadUrl());
-      conn = ConnectionHelp.handleConnection(url);
-      conn = ConnectionHelp.setConnectParam(mTaskEntity, conn);
-      conn.setRequestProperty("Range", "bytes=" + 0 + "-");
-      conn.setConnectTimeout(mConnectTimeOut);
-      conn.connect();
-      handleConnect(conn);
+      while (url != null) {
+        url = connect(url);
+      }
     } catch (IOException e) {
       failDownload("下载失败【downloadUrl:"
           + mEntity.getDownloadUrl()
@@ -77,17 +81,64 @@ class FileInfoThread implements Runnable {
           + mEntity.getDownloadPath()
           + "】\n"
           + CommonUtil.getPrintException(e));
+    }
+  }
+
+  /**
+   * 请求文件信息，只请求文件的第一个字节，响应读取完成后连接可以被下载线程复用
+   *
+   * @return 30x跳转的新地址或需要重新请求的地址，不需要再次请求时返回null
+   */
+  private String connect(String url) throws IOException {
+    HttpURLConnection conn = ConnectionHelp.handleProbeConnection(new URL(url), mConnectTimeOut);
+    boolean isConsumed = false;
+    boolean isComplete = false;
+    String newUrl = null;
+    try {
+      conn = ConnectionHelp.setConnectParam(mTaskEntity, conn);
+      if (mCookies != null) {
+        conn.setRequestProperty("Cookie", mCookies);
+      }
+      conn.setRequestProperty("Range", isFullRange ? "bytes=0-" : "bytes=0-0");
+      conn.setConnectTimeout(mConnectTimeOut);
+      conn.connect();
+      int code = conn.getResponseCode();
+      mTaskEntity.code = code;
+      if (code == HttpURLConnection.HTTP_MOVED_TEMP
+          || code == HttpURLConnection.HTTP_MOVED_PERM
+          || code == HttpURLConnection.HTTP_SEE_OTHER) {
+        newUrl = handle302Turn(conn);
+      } else if (code == HttpURLConnection.HTTP_PARTIAL && !isFullRange
+          && getTotalLength(conn) < 0) {
+        Log.w(TAG, "任务【" + mEntity.getDownloadUrl() + "】没有返回Content-Range，重新获取文件长度");
+        isFullRange = true;
+        newUrl = url;
+      } else {
+        isComplete = handleConnect(conn, code);
+      }
+      //200表示服务器不支持断点，响应内容为整个文件
+      if (code != HttpURLConnection.HTTP_OK) {
+        isConsumed = ConnectionHelp.consumeContent(conn);
+      }
     } finally {
-      if (conn != null) {
-        conn.disconnect();
+      ConnectionHelp.release(conn, isConsumed);
+    }
+    if (isComplete) {
+      if (onFileInfoListener != null) {
+        onFileInfoListener.onComplete(mEntity.getDownloadUrl(), mTaskEntity.code);
       }
+      mEntity.update();
+      mTaskEntity.update();
     }
+    return newUrl;
   }
 
-  private void handleConnect(HttpURLConnection conn) throws IOException {
-    int len = conn.getContentLength();
-    int code = conn.getResponseCode();
-    boolean isComplete = false;
+  /**
+   * 处理响应
+   *
+   * @return {@code true} 成功获取文件信息
+   */
+  private boolean handleConnect(HttpURLConnection conn, int code) throws IOException {
     if (TextUtils.isEmpty(mEntity.getMd5Code())) {
       String md5Code = conn.getHeaderField(mTaskEntity.md5Key);
       mEntity.setMd5Code(md5Code);
@@ -101,59 +152,88 @@ class FileInfoThread implements Runnable {
       }
     }
 
-    mTaskEntity.code = code;
     if (code == HttpURLConnection.HTTP_PARTIAL) {
-      if (!checkLen(len)) return;
+      long len = getTotalLength(conn);
+      if (len < 0 && isFullRange) {
+        len = getContentLength(conn);
+      }
+      if (!checkLen(len)) return false;
       mEntity.setFileSize(len);
       mTaskEntity.isSupportBP = true;
-      isComplete = true;
+      return true;
     } else if (code == HttpURLConnection.HTTP_OK) {
-      if (!checkLen(len)) return;
+      long len = getContentLength(conn);
+      if (!checkLen(len)) return false;
       mEntity.setFileSize(len);
       mTaskEntity.isSupportBP = false;
-      isComplete = true;
+      return true;
+    } else if (code == HTTP_RANGE_NOT_SATISFIABLE) {
+      //空文件，不需要分段下载
+      mEntity.setFileSize(0);
+      mTaskEntity.isSupportBP = false;
+      return true;
     } else if (code == HttpURLConnection.HTTP_NOT_FOUND) {
       failDownload("任务【" + mEntity.getDownloadUrl() + "】下载失败，错误码：404");
-    } else if (code == HttpURLConnection.HTTP_MOVED_TEMP
-        || code == HttpURLConnection.HTTP_MOVED_PERM
-        || code == HttpURLConnection.HTTP_SEE_OTHER) {
-      mTaskEntity.redirectUrl = conn.getHeaderField(mTaskEntity.redirectUrlKey);
-      mEntity.setRedirect(true);
-      mEntity.setRedirectUrl(mTaskEntity.redirectUrl);
-      handle302Turn(conn);
     } else {
       failDownload("任务【" + mEntity.getDownloadUrl() + "】下载失败，错误码：" + code);
     }
-    if (isComplete) {
-      if (onFileInfoListener != null) {
-        onFileInfoListener.onComplete(mEntity.getDownloadUrl(), code);
-      }
-      mEntity.update();
-      mTaskEntity.update();
+    return false;
+  }
+
+  /**
+   * 从Content-Range中获取文件总长度，如：bytes 0-0/1024
+   *
+   * @return 获取失败返回-1
+   */
+  private long getTotalLength(HttpURLConnection conn) {
+    String range = conn.getHeaderField("Content-Range");
+    if (TextUtils.isEmpty(range)) {
+      return -1;
+    }
+    int index = range.lastIndexOf('/');
+    try {
+      return index == -1 ? -1 : Long.parseLong(range.substring(index + 1).trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * 从Content-Length中获取长度，{@link HttpURLConnection#getContentLength()}不支持超过2G的长度
+   *
+   * @return 获取失败返回-1
+   */
+  private long getContentLength(HttpURLConnection conn) {
+    String len = conn.getHeaderField("Content-Length");
+    if (TextUtils.isEmpty(len)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(len.trim());
+    } catch (NumberFormatException e) {
+      return -1;
     }
   }
 
   /**
    * 处理30x跳转
+   *
+   * @return 跳转的新地址，获取失败返回null
    */
-  private void handle302Turn(HttpURLConnection conn) throws IOException {
-    String newUrl = conn.getHeaderField(mTaskEntity.redirectUrlKey);
+  private String handle302Turn(HttpURLConnection conn) {
+    mTaskEntity.redirectUrl = conn.getHeaderField(mTaskEntity.redirectUrlKey);
+    mEntity.setRedirect(true);
+    mEntity.setRedirectUrl(mTaskEntity.redirectUrl);
+    String newUrl = mTaskEntity.redirectUrl;
     Log.d(TAG, "30x跳转，location【 " + mTaskEntity.redirectUrlKey + "】" + "新url为【" + newUrl + "】");
     if (TextUtils.isEmpty(newUrl) || newUrl.equalsIgnoreCase("null")) {
       if (onFileInfoListener != null) {
         onFileInfoListener.onFail(mEntity.getDownloadUrl(), "获取重定向链接失败");
       }
-      return;
+      return null;
     }
-    String cookies = conn.getHeaderField("Set-Cookie");
-    conn = (HttpURLConnection) new URL(newUrl).openConnection();
-    conn = ConnectionHelp.setConnectParam(mTaskEntity, conn);
-    conn.setRequestProperty("Cookie", cookies);
-    conn.setRequestProperty("Range", "bytes=" + 0 + "-");
-    conn.setConnectTimeout(mConnectTimeOut);
-    conn.connect();
-    handleConnect(conn);
-    conn.disconnect();
+    mCookies = conn.getHeaderField("Set-Cookie");
+    return newUrl;
   }
 
   /**
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import com.arialyy.aria.core.AriaManager;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下载连接池
+ * 限制每个host同时打开的连接数，获取文件信息的请求使用单独的许可，不会排在长时间下载的分段后面；
+ * 等待许可超过超时时间时打开连接失败。响应内容读取完成的连接只关闭输入流，不调用
+ * {@link HttpURLConnection#disconnect()}，socket会回到系统的keep-alive连接池，被同一host的后续请求复用。
+ * 通过{@link #setConnectionFactory(IConnectionFactory, int)}可以替换创建连接的实现；连接池只管理许可和统计，
+ * 不提供多路复用，分段的并发数还受到下载线程池每个主机并发数的限制
+ */
+public final class HttpConnectionPool {
+  private static volatile HttpConnectionPool INSTANCE = null;
+
+  /**
+   * 每个host同时获取文件信息的请求数
+   */
+  private static final int PROBE_NUM_PER_HOST = 2;
+
+  private final Map<String, Semaphore> mPermits = new HashMap<>();
+  private final Map<String, Semaphore> mProbePermits = new HashMap<>();
+  //连接打开时占用的许可，连接重定向后host可能改变，释放时需要归还到原来的许可
+  private final Map<HttpURLConnection, Semaphore> mUsedPermits = new IdentityHashMap<>();
+  private int mMaxRequestsPerHost;
+  private volatile IConnectionFactory mFactory = new IConnectionFactory() {
+    @Override public HttpURLConnection openConnection(URL url) throws IOException {
+      return (HttpURLConnection) url.openConnection();
+    }
+  };
+
+  private final AtomicLong mOpenNum = new AtomicLong();
+  private final AtomicLong mKeepAliveNum = new AtomicLong();
+  private final AtomicLong mDisconnectNum = new AtomicLong();
+  private final AtomicLong mWaitNum = new AtomicLong();
+  private final AtomicLong mWaitTimeOutNum = new AtomicLong();
+
+  /**
+   * 连接创建接口，可以替换为其它HttpURLConnection的实现
+   */
+  public interface IConnectionFactory {
+    HttpURLConnection openConnection(URL url) throws IOException;
+  }
+
+  private HttpConnectionPool() {
+    this(AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMaxConnectionsPerHost());
+  }
+
+  /**
+   * 不修改http.keepAlive、http.maxConnections等系统属性，keep-alive连接池使用应用的配置
+   */
+  HttpConnectionPool(int maxRequestsPerHost) {
+    mMaxRequestsPerHost = maxRequestsPerHost;
+  }
+
+  public static HttpConnectionPool getInstance() {
+    if (INSTANCE == null) {
+      synchronized (AriaManager.LOCK) {
+        if (INSTANCE == null) {
+          INSTANCE = new HttpConnectionPool();
+        }
+      }
+    }
+    return INSTANCE;
+  }
+
+  public void setConnectionFactory(IConnectionFactory factory) {
+    setConnectionFactory(factory, getMaxRequestsPerHost());
+  }
+
+  /**
+   * 设置连接创建接口
+   *
+   * @param factory 连接创建接口，分段、任务组子任务和文件信息请求都通过它创建连接
+   * @param maxRequestsPerHost 每个host最多同时进行的请求数
+   */
+  public void setConnectionFactory(IConnectionFactory factory, int maxRequestsPerHost) {
+    if (factory == null) {
+      return;
+    }
+    mFactory = factory;
+    setMaxRequestsPerHost(maxRequestsPerHost);
+  }
+
+  /**
+   * 修改每个host最多同时进行的请求数
+   */
+  public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+    if (maxRequestsPerHost < 1) {
+      return;
+    }
+    synchronized (mPermits) {
+      if (mMaxRequestsPerHost != maxRequestsPerHost) {
+        mMaxRequestsPerHost = maxRequestsPerHost;
+        //正在使用的连接会归还到旧的许可，新的请求使用新的上限
+        mPermits.clear();
+      }
+    }
+  }
+
+  public int getMaxRequestsPerHost() {
+    synchronized (mPermits) {
+      return mMaxRequestsPerHost;
+    }
+  }
+
+  /**
+   * 打开连接，host的连接数已满时等待其它连接释放，使用完成后必须调用{@link #release(HttpURLConnection, boolean)}
+   *
+   * @param isProbe {@code true} 获取文件信息的请求，使用单独的许可
+   * @param waitTimeOut 等待许可的超时时间，单位：毫秒
+   * @throws SocketTimeoutException 等待许可超时
+   */
+  HttpURLConnection open(URL url, boolean isProbe, long waitTimeOut) throws IOException {
+    String host = url.getHost();
+    Semaphore permit = isProbe ? getProbePermit(host) : getPermit(host);
+    if (!permit.tryAcquire()) {
+      mWaitNum.incrementAndGet();
+      try {
+        if (!permit.tryAcquire(waitTimeOut, TimeUnit.MILLISECONDS)) {
+          mWaitTimeOutNum.incrementAndGet();
+          throw new SocketTimeoutException("等待host【" + host + "】的连接超时");
+        }
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("等待连接被中断");
+      }
+    }
+    try {
+      HttpURLConnection conn = mFactory.openConnection(url);
+      mOpenNum.incrementAndGet();
+      synchronized (mUsedPermits) {
+        mUsedPermits.put(conn, permit);
+      }
+      return conn;
+    } catch (IOException e) {
+      permit.release();
+      throw e;
+    } catch (RuntimeException e) {
+      permit.release();
+      throw e;
+    }
+  }
+
+  /**
+   * 释放连接
+   *
+   * @param isConsumed {@code true} 响应内容已经全部读取并关闭了输入流，连接可以被复用；
+   * {@code false} 断开连接
+   */
+  void release(HttpURLConnection conn, boolean isConsumed) {
+    if (isConsumed) {
+      mKeepAliveNum.incrementAndGet();
+    } else {
+      conn.disconnect();
+      mDisconnectNum.incrementAndGet();
+    }
+    Semaphore permit;
+    synchronized (mUsedPermits) {
+      permit = mUsedPermits.remove(conn);
+    }
+    if (permit != null) {
+      permit.release();
+    }
+  }
+
+  private Semaphore getPermit(String host) {
+    synchronized (mPermits) {
+      Semaphore permit = mPermits.get(host);
+      if (permit == null) {
+        permit = new Semaphore(mMaxRequestsPerHost);
+        mPermits.put(host, permit);
+      }
+      return permit;
+    }
+  }
+
+  private Semaphore getProbePermit(String host) {
+    synchronized (mPermits) {
+      Semaphore permit = mProbePermits.get(host);
+      if (permit == null) {
+        permit = new Semaphore(PROBE_NUM_PER_HOST);
+        mProbePermits.put(host, permit);
+      }
+      return permit;
+    }
+  }
+
+  /**
+   * 打开的连接数
+   */
+  public long getOpenNum() {
+    return mOpenNum.get();
+  }
+
+  /**
+   * 保留给keep-alive复用的连接数
+   */
+  public long getKeepAliveNum() {
+    return mKeepAliveNum.get();
+  }
+
+  /**
+   * 被断开的连接数
+   */
+  public long getDisconnectNum() {
+    return mDisconnectNum.get();
+  }
+
+  /**
+   * 因为host连接数已满而等待的次数
+   */
+  public long getWaitNum() {
+    return mWaitNum.get();
+  }
+
+  /**
+   * 因为等待许可超时而打开失败的次数
+   */
+  public long getWaitTimeOutNum() {
+    return mWaitTimeOutNum.get();
+  }
+
+  /**
+   * host当前下载分段正在使用的连接数
+   */
+  public int getActiveNum(String host) {
+    synchronized (mPermits) {
+      return mMaxRequestsPerHost - getPermit(host).availablePermits();
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import java.io.IOException;
+
+/**
+ * 下载线程的文件写入接口
+ */
+interface IFileWriter {
+
+  /**
+   * 将数据写入到文件的当前位置
+   */
+  void write(byte[] buffer, int offset, int len) throws IOException;
+
+  /**
+   * 保存断点前调用，保证已经写入的数据不会因为进程或系统异常而丢失
+   */
+  void checkpoint() throws IOException;
+
+  /**
+   * 关闭写入器
+   */
+  void close() throws IOException;
+}
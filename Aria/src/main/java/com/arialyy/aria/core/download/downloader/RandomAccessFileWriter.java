@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import com.arialyy.aria.util.BufferedRandomAccessFile;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 使用{@link BufferedRandomAccessFile}写文件，文件以"rwd"模式打开，每次写入都会同步到磁盘
+ */
+final class RandomAccessFileWriter implements IFileWriter {
+  private BufferedRandomAccessFile mFile;
+
+  RandomAccessFileWriter(File file, long position, int bufSize) throws IOException {
+    mFile = new BufferedRandomAccessFile(file, "rwd", bufSize);
+    mFile.seek(position);
+  }
+
+  @Override public void write(byte[] buffer, int offset, int len) throws IOException {
+    mFile.write(buffer, offset, len);
+  }
+
+  @Override public void checkpoint() throws IOException {
+    mFile.flush();
+  }
+
+  @Override public void close() throws IOException {
+    mFile.close();
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import android.util.Log;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.util.CommonUtil;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分段调度器
+ * 文件被切分为多个小分段，由固定数量的下载线程按需领取；
+ * 当有线程空闲并且已经没有等待中的分段时，将剩余长度最大的分段一分为二，后半段交给空闲线程下载
+ */
+final class SegmentScheduler {
+  private static final String TAG = "SegmentScheduler";
+
+  /**
+   * 每条下载线程预先分配的分段数
+   */
+  private static final int SEGMENT_NUM_PER_THREAD = 4;
+
+  /**
+   * 预分配分段的最小长度
+   */
+  private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+  /**
+   * 拆分后每一半的最小长度，该值需要远大于读取的buff大小，
+   * 保证被拆分的线程在看到新的结束位置之前不会写过拆分点
+   */
+  private static final long MIN_SPLIT_SIZE = 512 * 1024;
+
+  private StateConstance mConstance;
+  private CheckpointJournal mJournal;
+  private String mFileName;
+  private OnSplitCallback mCallback;
+  private int mNextId;
+
+  /**
+   * 等待执行的分段
+   */
+  private List<SingleThreadTask> mWaitTasks = new ArrayList<>();
+
+  /**
+   * 正在执行的分段
+   */
+  private List<SingleThreadTask> mRunningTasks = new ArrayList<>();
+
+  interface OnSplitCallback {
+    /**
+     * 分段被拆分，需要为新的分段创建下载线程
+     *
+     * @param segmentId 新分段的id
+     * @param startL 新分段的开始位置
+     * @param endL 新分段的结束位置
+     */
+    void onSplit(int segmentId, long startL, long endL);
+  }
+
+  /**
+   * @param nextId 下一个新分段的id，需要大于已存在的所有分段id
+   */
+  SegmentScheduler(StateConstance constance, CheckpointJournal journal, String fileName, int nextId,
+      OnSplitCallback callback) {
+    mConstance = constance;
+    mJournal = journal;
+    mFileName = fileName;
+    mNextId = nextId;
+    mCallback = callback;
+  }
+
+  /**
+   * 计算新任务的分段数
+   *
+   * @param fileLength 文件长度
+   * @param threadNum 下载线程数
+   */
+  static int getSegmentNum(long fileLength, int threadNum) {
+    if (threadNum <= 1) {
+      return 1;
+    }
+    long num = Math.min(threadNum * SEGMENT_NUM_PER_THREAD, fileLength / MIN_SEGMENT_SIZE);
+    return (int) Math.max(num, threadNum);
+  }
+
+  /**
+   * 添加分段任务，任务将处于等待状态，直到下载线程开始执行
+   */
+  void addTask(SingleThreadTask task) {
+    synchronized (AriaManager.LOCK) {
+      mWaitTasks.add(task);
+    }
+  }
+
+  /**
+   * 下载线程开始执行分段
+   */
+  void onTaskStart(SingleThreadTask task) {
+    synchronized (AriaManager.LOCK) {
+      mWaitTasks.remove(task);
+      mRunningTasks.add(task);
+    }
+  }
+
+  /**
+   * 分段下载完成，如果没有等待中的分段，则拆分剩余长度最大的分段
+   */
+  void onTaskComplete(SingleThreadTask task) {
+    synchronized (AriaManager.LOCK) {
+      mRunningTasks.remove(task);
+      trySplit();
+    }
+  }
+
+  /**
+   * 分段需要重新下载，重新进入等待状态
+   */
+  void onTaskRetry(SingleThreadTask task) {
+    synchronized (AriaManager.LOCK) {
+      mRunningTasks.remove(task);
+      if (!mWaitTasks.contains(task)) {
+        mWaitTasks.add(task);
+      }
+    }
+  }
+
+  /**
+   * 如果没有等待中的分段，则拆分剩余长度最大的分段，交给空闲的下载线程
+   *
+   * @return {@code true} 拆分成功
+   */
+  boolean trySplit() {
+    synchronized (AriaManager.LOCK) {
+      if (!mWaitTasks.isEmpty() || mConstance.isStop || mConstance.isCancel) {
+        return false;
+      }
+      SingleThreadTask victim = null;
+      long maxRemain = 0;
+      for (SingleThreadTask t : mRunningTasks) {
+        long remain = t.getConfigEntity().END_LOCATION - t.getChildCurrentLocation();
+        if (remain > maxRemain) {
+          maxRemain = remain;
+          victim = t;
+        }
+      }
+      if (victim == null || maxRemain < MIN_SPLIT_SIZE * 2) {
+        return false;
+      }
+      ChildThreadConfigEntity entity = victim.getConfigEntity();
+      long endL = entity.END_LOCATION;
+      long splitL = endL - maxRemain / 2;
+      entity.END_LOCATION = splitL;
+      int id = mNextId++;
+      Log.d(TAG, "任务【"
+          + mFileName
+          + "】分段__"
+          + entity.THREAD_ID
+          + "__拆分，新分段__"
+          + id
+          + "__【开始位置 : "
+          + splitL
+          + "，结束位置："
+          + endL
+          + "】");
+      saveSegment(entity.THREAD_ID, splitL, id, endL);
+      mCallback.onSplit(id, splitL, endL);
+      return true;
+    }
+  }
+
+  /**
+   * 保存被拆分分段新的结束位置，以及新分段的位置信息
+   *
+   * @param oldId 被拆分分段的id
+   * @param splitL 拆分位置
+   * @param newId 新分段的id
+   * @param endL 新分段的结束位置
+   */
+  private void saveSegment(int oldId, long splitL, int newId, long endL) {
+    try {
+      mJournal.writeSplit(oldId, splitL, newId, endL);
+    } catch (IOException e) {
+      Log.e(TAG, "保存分段失败\n" + CommonUtil.getPrintException(e));
+    }
+  }
+}
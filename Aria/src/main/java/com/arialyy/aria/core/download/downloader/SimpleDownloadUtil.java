@@ -18,7 +18,10 @@ package com.arialyy.aria.core.download.downloader;
 
 import android.text.TextUtils;
 import android.util.Log;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.ExecutorManager;
 import com.arialyy.aria.core.download.DownloadTaskEntity;
+import com.arialyy.aria.util.CommonUtil;
 
 /**
  * Created by lyy on 2015/8/25.
@@ -70,7 +73,7 @@ public class SimpleDownloadUtil implements IDownloadUtil, Runnable {
    */
   @Override public void startDownload() {
     mListener.onPre();
-    new Thread(this).start();
+    AriaManager.getInstance(AriaManager.APP).getExecutorManager().executeFlow(this);
   }
 
   @Override public void resumeDownload() {
@@ -81,6 +84,13 @@ public class SimpleDownloadUtil implements IDownloadUtil, Runnable {
     mDT.setMaxSpeed(maxSpeed);
   }
 
+  /**
+   * 设置进度回调间隔，单位：毫秒
+   */
+  public void setProgressInterval(long interval) {
+    mDT.setProgressInterval(interval);
+  }
+
   private void failDownload(String msg) {
     Log.e(TAG, msg);
     mListener.onFail();
@@ -88,7 +98,7 @@ public class SimpleDownloadUtil implements IDownloadUtil, Runnable {
 
   @Override public void run() {
     if (TextUtils.isEmpty(mTaskEntity.redirectUrl)) {
-      new Thread(new FileInfoThread(mTaskEntity, new FileInfoThread.OnFileInfoCallback() {
+      FileInfoThread.OnFileInfoCallback callback = new FileInfoThread.OnFileInfoCallback() {
         @Override public void onComplete(String url, int code) {
           mDT.startDownload();
         }
@@ -96,7 +106,12 @@ public class SimpleDownloadUtil implements IDownloadUtil, Runnable {
         @Override public void onFail(String url, String errorMsg) {
           failDownload(errorMsg);
         }
-      })).start();
+      };
+      //单任务的文件信息优先于任务组子任务获取
+      AriaManager.getInstance(AriaManager.APP)
+          .getExecutorManager()
+          .executeProbe(CommonUtil.getHost(mTaskEntity.getEntity().getDownloadUrl()),
+              new FileInfoThread(mTaskEntity, callback), ExecutorManager.PRIORITY_HIGH);
     } else {
       new Downloader(mListener, mTaskEntity).startDownload();
     }
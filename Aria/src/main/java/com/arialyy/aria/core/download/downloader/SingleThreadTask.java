@@ -15,20 +15,14 @@
  */
 package com.arialyy.aria.core.download.downloader;
 
-import android.os.Build;
-import android.text.TextUtils;
 import android.util.Log;
 import com.arialyy.aria.core.AriaManager;
-import com.arialyy.aria.util.BufferedRandomAccessFile;
 import com.arialyy.aria.util.CommonUtil;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigDecimal;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Properties;
 
 /**
  * Created by lyy on 2017/1/18.
@@ -36,50 +30,83 @@ import java.util.Properties;
  */
 final class SingleThreadTask implements Runnable {
   private static final String TAG = "SingleThreadTask";
+
+  /**
+   * 服务器繁忙时，同一分段最多重试的次数
+   */
+  private static final int MAX_BUSY_NUM = 10;
+
+  /**
+   * 服务器繁忙时默认和最大的重试延迟，单位：毫秒
+   */
+  private static final long BUSY_DELAY = 2 * 1000, MAX_BUSY_DELAY = 30 * 1000;
   private ChildThreadConfigEntity mConfigEntity;
-  private String mConfigFPath;
-  private long mChildCurrentLocation = 0;
+  private CheckpointJournal mJournal;
+  //只由当前线程修改，拆分分段时由其它线程读取
+  private volatile long mChildCurrentLocation = 0;
   private int mBufSize;
   private IDownloadListener mListener;
   private StateConstance CONSTANCE;
-  private long mSleepTime = 0;
+  private SegmentScheduler mScheduler;
+  //定期保存断点的时间间隔和数据长度
+  private int mCheckpointInterval, mCheckpointSize;
+  private long mLastCheckpointTime, mLastCheckpointLocation;
+  private int mBusyNum = 0;
 
   SingleThreadTask(StateConstance constance, IDownloadListener listener,
       ChildThreadConfigEntity downloadInfo) {
+    this(constance, listener, downloadInfo, null);
+  }
+
+  /**
+   * @param scheduler 分段调度器，不支持断点的任务为null
+   */
+  SingleThreadTask(StateConstance constance, IDownloadListener listener,
+      ChildThreadConfigEntity downloadInfo, SegmentScheduler scheduler) {
     AriaManager manager = AriaManager.getInstance(AriaManager.APP);
     CONSTANCE = constance;
     CONSTANCE.CONNECT_TIME_OUT = manager.getDownloadConfig().getConnectTimeOut();
     CONSTANCE.READ_TIME_OUT = manager.getDownloadConfig().getIOTimeOut();
     mListener = listener;
+    mScheduler = scheduler;
     this.mConfigEntity = downloadInfo;
+    mChildCurrentLocation = mConfigEntity.START_LOCATION;
     if (mConfigEntity.IS_SUPPORT_BREAK_POINT) {
-      mConfigFPath = downloadInfo.CONFIG_FILE_PATH;
+      mJournal = downloadInfo.JOURNAL;
     }
     mBufSize = manager.getDownloadConfig().getBuffSize();
-    setMaxSpeed(AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMsxSpeed());
+    mCheckpointInterval = manager.getDownloadConfig().getCheckpointInterval();
+    mCheckpointSize = manager.getDownloadConfig().getCheckpointSize();
   }
 
-  void setMaxSpeed(double maxSpeed) {
-    if (-0.9999 < maxSpeed && maxSpeed < 0.00001) {
-      mSleepTime = 0;
-    } else {
-      BigDecimal db = new BigDecimal(
-          ((mBufSize / 1024) * (filterVersion() ? 1 : CONSTANCE.THREAD_NUM) / maxSpeed) * 1000);
-      mSleepTime = db.setScale(0, BigDecimal.ROUND_HALF_UP).longValue();
-    }
+  ChildThreadConfigEntity getConfigEntity() {
+    return mConfigEntity;
   }
 
-  private boolean filterVersion() {
-    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+  /**
+   * 获取当前子线程的下载位置
+   */
+  long getChildCurrentLocation() {
+    return mChildCurrentLocation;
   }
 
   @Override public void run() {
     HttpURLConnection conn = null;
     InputStream is = null;
-    BufferedRandomAccessFile file = null;
+    IFileWriter file = null;
+    byte[] buffer = null;
+    boolean isConsumed = false;
+    //等待执行的分段在任务停止后不再发起连接
+    if (CONSTANCE.isCancel || CONSTANCE.isStop) {
+      return;
+    }
+    if (mScheduler != null) {
+      mScheduler.onTaskStart(this);
+    }
     try {
       URL url = new URL(mConfigEntity.DOWNLOAD_URL);
-      conn = ConnectionHelp.handleConnection(url);
+      conn = ConnectionHelp.handleConnection(url, CONSTANCE.CONNECT_TIME_OUT);
+      long requestEnd = mConfigEntity.END_LOCATION;
       if (mConfigEntity.IS_SUPPORT_BREAK_POINT) {
         Log.d(TAG, "任务【"
             + mConfigEntity.TEMP_FILE.getName()
@@ -92,22 +119,25 @@ final class SingleThreadTask implements Runnable {
             + "】");
         //在头里面请求下载开始位置和结束位置
         conn.setRequestProperty("Range",
-            "bytes=" + mConfigEntity.START_LOCATION + "-" + (mConfigEntity.END_LOCATION - 1));
+            "bytes=" + mConfigEntity.START_LOCATION + "-" + (requestEnd - 1));
       } else {
         Log.w(TAG, "该下载不支持断点");
       }
       conn = ConnectionHelp.setConnectParam(mConfigEntity.DOWNLOAD_TASK_ENTITY, conn);
       conn.setConnectTimeout(CONSTANCE.CONNECT_TIME_OUT);
       conn.setReadTimeout(CONSTANCE.READ_TIME_OUT);  //设置读取流的等待时间,必须设置该参数
+      if (handleServerBusy(conn)) {
+        return;
+      }
       is = conn.getInputStream();
       //创建可设置位置的文件
-      file = new BufferedRandomAccessFile(mConfigEntity.TEMP_FILE, "rwd", mBufSize);
-      //设置每条线程写入文件的位置
-      file.seek(mConfigEntity.START_LOCATION);
-      byte[] buffer = new byte[mBufSize];
+      file = createWriter();
+      buffer = BufferPool.obtainArray(mBufSize);
       int len;
       //当前子线程的下载位置
       mChildCurrentLocation = mConfigEntity.START_LOCATION;
+      mLastCheckpointTime = System.currentTimeMillis();
+      mLastCheckpointLocation = mChildCurrentLocation;
       while ((len = is.read(buffer)) != -1) {
         if (CONSTANCE.isCancel) {
           break;
@@ -115,10 +145,27 @@ final class SingleThreadTask implements Runnable {
         if (CONSTANCE.isStop) {
           break;
         }
-        Thread.sleep(mSleepTime);
-        file.write(buffer, 0, len);
-        progress(len);
+        limitSpeed(len);
+        if (mConfigEntity.IS_SUPPORT_BREAK_POINT) {
+          //分段可能已经被拆分，只写入到当前的结束位置
+          long remain = mConfigEntity.END_LOCATION - mChildCurrentLocation;
+          if (len > remain) {
+            len = (int) remain;
+          }
+          file.write(buffer, 0, len);
+          progress(len);
+          if (mChildCurrentLocation >= mConfigEntity.END_LOCATION) {
+            break;
+          }
+          checkpoint(file);
+        } else {
+          file.write(buffer, 0, len);
+          progress(len);
+        }
       }
+      //请求的内容已经全部读取，连接可以被复用；分段被拆分后剩余的内容没有读取，需要断开连接
+      isConsumed = mConfigEntity.IS_SUPPORT_BREAK_POINT ? mChildCurrentLocation >= requestEnd
+          : len == -1;
       if (CONSTANCE.isCancel) {
         return;
       }
@@ -133,16 +180,19 @@ final class SingleThreadTask implements Runnable {
             + "】线程__"
             + mConfigEntity.THREAD_ID
             + "__下载完毕");
-        writeConfig(true, 1);
-        mListener.onChildComplete(mConfigEntity.END_LOCATION);
-        CONSTANCE.COMPLETE_THREAD_NUM++;
-        if (CONSTANCE.isComplete()) {
-          File configFile = new File(mConfigFPath);
-          if (configFile.exists()) {
-            configFile.delete();
+        synchronized (AriaManager.LOCK) {
+          writeConfig(true, 1);
+          mListener.onChildComplete(mConfigEntity.END_LOCATION);
+          //先让空闲线程领取拆分出的新分段，再统计完成的分段
+          if (mScheduler != null) {
+            mScheduler.onTaskComplete(this);
+          }
+          CONSTANCE.COMPLETE_THREAD_NUM++;
+          if (CONSTANCE.isComplete()) {
+            mJournal.delete();
+            CONSTANCE.isDownloading = false;
+            mListener.onComplete();
           }
-          CONSTANCE.isDownloading = false;
-          mListener.onComplete();
         }
       } else {
         Log.i(TAG, "下载任务完成");
@@ -156,6 +206,7 @@ final class SingleThreadTask implements Runnable {
     } catch (Exception e) {
       failDownload(mChildCurrentLocation, "获取流失败", e);
     } finally {
+      BufferPool.recycle(buffer);
       try {
         if (file != null) {
           file.close();
@@ -163,12 +214,13 @@ final class SingleThreadTask implements Runnable {
         if (is != null) {
           is.close();
         }
-        if (conn != null) {
-          conn.disconnect();
-        }
       } catch (IOException e) {
+        isConsumed = false;
         e.printStackTrace();
       }
+      if (conn != null) {
+        ConnectionHelp.release(conn, isConsumed);
+      }
     }
   }
 
@@ -190,12 +242,12 @@ final class SingleThreadTask implements Runnable {
           if (CONSTANCE.isStop()) {
             Log.d(TAG, "任务【" + mConfigEntity.TEMP_FILE.getName() + "】已停止");
             CONSTANCE.isDownloading = false;
-            mListener.onStop(CONSTANCE.CURRENT_LOCATION);
+            mListener.onStop(CONSTANCE.CURRENT_LOCATION.get());
           }
         } else {
           Log.d(TAG, "任务【" + mConfigEntity.TEMP_FILE.getName() + "】已停止");
           CONSTANCE.isDownloading = false;
-          mListener.onStop(CONSTANCE.CURRENT_LOCATION);
+          mListener.onStop(CONSTANCE.CURRENT_LOCATION.get());
         }
       } catch (IOException e) {
         e.printStackTrace();
@@ -204,15 +256,92 @@ final class SingleThreadTask implements Runnable {
   }
 
   /**
-   * 下载中
+   * 服务器返回429或503时，降低任务的线程数，分段延迟后重新排队
+   *
+   * @return {@code true} 服务器繁忙，分段已重新排队
    */
-  private void progress(long len) {
-    synchronized (AriaManager.LOCK) {
-      mChildCurrentLocation += len;
-      CONSTANCE.CURRENT_LOCATION += len;
+  private boolean handleServerBusy(HttpURLConnection conn) throws IOException {
+    if (mConfigEntity.CONTROLLER == null) {
+      return false;
+    }
+    int code = conn.getResponseCode();
+    if (code != 429 && code != HttpURLConnection.HTTP_UNAVAILABLE) {
+      return false;
+    }
+    //多次重试依然繁忙，按下载失败处理
+    if (++mBusyNum > MAX_BUSY_NUM) {
+      return false;
+    }
+    long delay = BUSY_DELAY;
+    String retryAfter = conn.getHeaderField("Retry-After");
+    if (retryAfter != null) {
+      try {
+        delay = Math.min(Long.parseLong(retryAfter.trim()) * 1000, MAX_BUSY_DELAY);
+      } catch (NumberFormatException e) {
+        //Retry-After为日期格式时使用默认延迟
+      }
+    }
+    Log.w(TAG, "任务【"
+        + mConfigEntity.TEMP_FILE.getName()
+        + "】线程__"
+        + mConfigEntity.THREAD_ID
+        + "__服务器繁忙【code："
+        + code
+        + "】，"
+        + delay
+        + "ms后重试");
+    mConfigEntity.CONTROLLER.onServerBusy(this, delay);
+    return true;
+  }
+
+  /**
+   * 按任务、任务组和全局的限速扣除令牌
+   */
+  private void limitSpeed(int len) throws InterruptedException {
+    if (mConfigEntity.TASK_LIMITER != null) {
+      mConfigEntity.TASK_LIMITER.acquire(len);
+    }
+    if (mConfigEntity.GROUP_LIMITER != null) {
+      mConfigEntity.GROUP_LIMITER.acquire(len);
+    }
+    SpeedLimiter.getGlobal().acquire(len);
+  }
+
+  /**
+   * 创建文件写入器，并设置写入文件的位置
+   */
+  private IFileWriter createWriter() throws IOException {
+    if (AriaManager.getInstance(AriaManager.APP).getDownloadConfig().isNioWrite()) {
+      return new FileChannelWriter(mConfigEntity.TEMP_FILE, mConfigEntity.START_LOCATION, mBufSize);
+    }
+    return new RandomAccessFileWriter(mConfigEntity.TEMP_FILE, mConfigEntity.START_LOCATION,
+        mBufSize);
+  }
+
+  /**
+   * 按时间间隔或下载长度定期保存断点，进程被杀死后只需要重新下载最后一个间隔的数据
+   */
+  private void checkpoint(IFileWriter file) throws IOException {
+    long now = System.currentTimeMillis();
+    if ((mCheckpointInterval > 0 && now - mLastCheckpointTime >= mCheckpointInterval)
+        || (mCheckpointSize > 0
+        && mChildCurrentLocation - mLastCheckpointLocation >= mCheckpointSize)) {
+      //记录的位置不能超过已经写入磁盘的位置
+      file.checkpoint();
+      mLastCheckpointTime = now;
+      mLastCheckpointLocation = mChildCurrentLocation;
+      mJournal.postRecord(mConfigEntity.THREAD_ID, mChildCurrentLocation);
     }
   }
 
+  /**
+   * 下载中，分段的下载位置只由当前线程修改，任务的下载位置使用原子操作，读取循环不需要获取全局锁
+   */
+  private void progress(long len) {
+    mChildCurrentLocation += len;
+    CONSTANCE.CURRENT_LOCATION.addAndGet(len);
+  }
+
   /**
    * 取消下载
    */
@@ -226,10 +355,7 @@ final class SingleThreadTask implements Runnable {
             + mConfigEntity.THREAD_ID
             + "__取消下载");
         if (CONSTANCE.isCancel()) {
-          File configFile = new File(mConfigFPath);
-          if (configFile.exists()) {
-            configFile.delete();
-          }
+          mJournal.delete();
           if (mConfigEntity.TEMP_FILE.exists()) {
             mConfigEntity.TEMP_FILE.delete();
           }
@@ -274,24 +400,13 @@ final class SingleThreadTask implements Runnable {
   }
 
   /**
-   * 将记录写入到配置文件
+   * 将记录追加到断点记录日志
    */
   private void writeConfig(boolean isComplete, long record) throws IOException {
-    synchronized (AriaManager.LOCK) {
-      String key = null, value = null;
-      if (0 < record && record < mConfigEntity.END_LOCATION) {
-        key = mConfigEntity.TEMP_FILE.getName() + "_record_" + mConfigEntity.THREAD_ID;
-        value = String.valueOf(record);
-      } else if (record >= mConfigEntity.END_LOCATION || isComplete) {
-        key = mConfigEntity.TEMP_FILE.getName() + "_state_" + mConfigEntity.THREAD_ID;
-        value = "1";
-      }
-      if (!TextUtils.isEmpty(key) && !TextUtils.isEmpty(value)) {
-        File configFile = new File(mConfigFPath);
-        Properties pro = CommonUtil.loadConfig(configFile);
-        pro.setProperty(key, value);
-        CommonUtil.saveConfig(configFile, pro);
-      }
+    if (0 < record && record < mConfigEntity.END_LOCATION) {
+      mJournal.writeRecord(mConfigEntity.THREAD_ID, record);
+    } else if (record >= mConfigEntity.END_LOCATION || isComplete) {
+      mJournal.writeComplete(mConfigEntity.THREAD_ID);
     }
   }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import com.arialyy.aria.core.AriaManager;
+
+/**
+ * 基于令牌桶的下载限速器
+ * 下载线程每读取一段数据就从令牌桶中扣除对应的字节数，令牌不足时按欠缺的令牌数等待；
+ * 单个任务、任务组和全局各有一个令牌桶，读取的数据需要同时满足所有令牌桶的限制
+ */
+public final class SpeedLimiter {
+  private static volatile SpeedLimiter GLOBAL = null;
+
+  /**
+   * 令牌桶容量对应的时间，容量越小，速度越平滑
+   */
+  private static final long BURST_MILLIS = 100;
+
+  /**
+   * 限制的速度，单位：byte/s，为0表示不限速
+   */
+  private long mRate = 0;
+  private long mCapacity = 0;
+  private double mTokens = 0;
+  private long mLastTime;
+
+  SpeedLimiter() {
+  }
+
+  SpeedLimiter(double maxSpeed) {
+    setMaxSpeed(maxSpeed);
+  }
+
+  /**
+   * 全局限速器，所有下载任务共用
+   */
+  public static SpeedLimiter getGlobal() {
+    if (GLOBAL == null) {
+      synchronized (AriaManager.LOCK) {
+        if (GLOBAL == null) {
+          GLOBAL = new SpeedLimiter(
+              AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getGlobalMaxSpeed());
+        }
+      }
+    }
+    return GLOBAL;
+  }
+
+  /**
+   * 设置最大下载速度
+   *
+   * @param maxSpeed 单位：kb，为0表示不限速
+   */
+  public synchronized void setMaxSpeed(double maxSpeed) {
+    mRate = maxSpeed < 0.00001 ? 0 : (long) (maxSpeed * 1024);
+    mCapacity = mRate * BURST_MILLIS / 1000;
+    mTokens = 0;
+    mLastTime = System.nanoTime();
+  }
+
+  /**
+   * 获取数据前扣除令牌，令牌不足时阻塞当前线程
+   *
+   * @param len 读取的字节数
+   */
+  void acquire(int len) throws InterruptedException {
+    long waitNanos = reserve(len);
+    if (waitNanos > 0) {
+      Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+    }
+  }
+
+  /**
+   * 扣除令牌，令牌数可以为负数，欠下的令牌由等待时间补足
+   *
+   * @return 需要等待的时间，单位：纳秒
+   */
+  private synchronized long reserve(int len) {
+    if (mRate == 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    mTokens = Math.min(mCapacity, mTokens + (now - mLastTime) * mRate / 1e9);
+    mLastTime = now;
+    mTokens -= len;
+    return mTokens >= 0 ? 0 : (long) (-mTokens * 1e9 / mRate);
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.arialyy.aria.core.download.downloader;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Created by lyy on 2017/1/18.
  * 下载状态常量
@@ -27,10 +29,11 @@ final class StateConstance {
   int READ_TIME_OUT; //流读取的超时时间
   int COMPLETE_THREAD_NUM = 0;
   int THREAD_NUM;
-  long CURRENT_LOCATION = 0;
-  boolean isDownloading = false;
-  boolean isCancel = false;
-  boolean isStop = false;
+  //下载线程每次读取都会更新，使用原子变量，不需要获取全局锁
+  final AtomicLong CURRENT_LOCATION = new AtomicLong();
+  volatile boolean isDownloading = false;
+  volatile boolean isCancel = false;
+  volatile boolean isStop = false;
 
   StateConstance() {
   }
@@ -39,7 +42,7 @@ final class StateConstance {
     isCancel = false;
     isStop = false;
     isDownloading = true;
-    CURRENT_LOCATION = 0;
+    CURRENT_LOCATION.set(0);
     CANCEL_NUM = 0;
     STOP_NUM = 0;
     FAIL_NUM = 0;
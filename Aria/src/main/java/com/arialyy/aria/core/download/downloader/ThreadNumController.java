@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import android.text.TextUtils;
+import android.util.Log;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.LimitedExecutor;
+import com.arialyy.aria.util.CommonUtil;
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * 自适应下载线程数
+ * 任务先以少量线程开始下载，根据实测的下载速度逐步增加线程，增加线程不再提升速度时回退；
+ * 服务器返回429、503时线程数减半，分段延迟后重新排队。每个主机的最佳线程数会被保存，下次下载直接使用
+ */
+final class ThreadNumController {
+  private static final String TAG = "ThreadNumController";
+
+  /**
+   * 没有记录的主机的初始线程数
+   */
+  private static final int INIT_THREAD_NUM = 2;
+
+  /**
+   * 调整间隔，单位：毫秒
+   */
+  private static final long ADJUST_INTERVAL = 3 * 1000;
+
+  /**
+   * 增加线程后速度提升低于该比例，认为已经达到最佳线程数
+   */
+  private static final double MIN_GAIN = 0.1;
+
+  /**
+   * 服务器繁忙后暂停调整的间隔数
+   */
+  private static final int BUSY_COOL_DOWN = 3;
+
+  private static final String RECORD_FILE = "/Aria/host_thread_num.properties";
+  private static Properties sRecords;
+
+  private String mHost;
+  private int mMaxThreadNum;
+  private int mThreadNum;
+  private LimitedExecutor mPool;
+  private SegmentScheduler mScheduler;
+  private StateConstance mConstance;
+
+  private long mLastTime;
+  private long mLastLocation = -1;
+  private long mLastSpeed = 0;
+  private int mCoolDown = 0;
+  //上一次调整是否增加了线程
+  private boolean isProbing = false;
+  //已经找到最佳线程数，不再增加线程
+  private boolean isStable = false;
+  private volatile boolean isClosed = false;
+
+  /**
+   * @param threadNum 当前的下载线程数
+   * @param maxThreadNum 配置的下载线程数，作为线程数上限
+   */
+  ThreadNumController(String host, int threadNum, int maxThreadNum, LimitedExecutor pool,
+      SegmentScheduler scheduler, StateConstance constance) {
+    mHost = host;
+    mThreadNum = threadNum;
+    mMaxThreadNum = maxThreadNum;
+    mPool = pool;
+    mScheduler = scheduler;
+    mConstance = constance;
+    isStable = mThreadNum >= mMaxThreadNum;
+  }
+
+  /**
+   * 获取任务的初始下载线程数，有记录的主机使用记录的线程数
+   *
+   * @param maxThreadNum 配置的下载线程数
+   */
+  static int getInitThreadNum(String host, int maxThreadNum) {
+    int num = INIT_THREAD_NUM;
+    synchronized (ThreadNumController.class) {
+      String value = TextUtils.isEmpty(host) ? null : getRecords().getProperty(host);
+      if (!TextUtils.isEmpty(value)) {
+        try {
+          num = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+          Log.w(TAG, "主机【" + host + "】的线程数记录错误：" + value);
+        }
+      }
+    }
+    return Math.max(1, Math.min(num, maxThreadNum));
+  }
+
+  /**
+   * 进度定时器每次回调时调用，每{@link #ADJUST_INTERVAL}毫秒根据下载速度调整一次线程数
+   *
+   * @param currentLocation 任务当前的下载位置
+   */
+  synchronized void onTick(long currentLocation) {
+    long now = System.currentTimeMillis();
+    if (mLastLocation < 0) {
+      mLastLocation = currentLocation;
+      mLastTime = now;
+      return;
+    }
+    long time = now - mLastTime;
+    if (time < ADJUST_INTERVAL) {
+      return;
+    }
+    long speed = (currentLocation - mLastLocation) * 1000 / time;
+    mLastLocation = currentLocation;
+    mLastTime = now;
+    if (mCoolDown > 0) {
+      mCoolDown--;
+      mLastSpeed = speed;
+      return;
+    }
+    if (isProbing) {
+      isProbing = false;
+      if (speed < mLastSpeed * (1 + MIN_GAIN)) {
+        //增加线程没有带来明显的提升，回退并保存
+        isStable = true;
+        setThreadNum(mThreadNum - 1);
+        saveThreadNum();
+      }
+    }
+    if (!isStable && mThreadNum < mMaxThreadNum && speed > 0) {
+      setThreadNum(mThreadNum + 1);
+      //新增的线程需要有分段可以领取
+      mScheduler.trySplit();
+      isProbing = true;
+    } else if (isStable && mThreadNum >= mMaxThreadNum) {
+      saveThreadNum();
+    }
+    mLastSpeed = speed;
+  }
+
+  /**
+   * 服务器返回429或503，线程数减半，分段延迟后重新排队
+   *
+   * @param task 需要重试的分段
+   * @param delay 重试延迟，单位：毫秒
+   */
+  void onServerBusy(final SingleThreadTask task, long delay) {
+    mScheduler.onTaskRetry(task);
+    synchronized (this) {
+      if (mCoolDown == 0) {
+        isProbing = false;
+        isStable = true;
+        mCoolDown = BUSY_COOL_DOWN;
+        setThreadNum(Math.max(1, mThreadNum / 2));
+        saveThreadNum();
+      }
+    }
+    if (isClosed) {
+      return;
+    }
+    AriaManager.getInstance(AriaManager.APP).getProgressTicker().schedule(new Runnable() {
+      @Override public void run() {
+        synchronized (AriaManager.LOCK) {
+          if (!isClosed && !mPool.isShutdown() && !mConstance.isStop && !mConstance.isCancel) {
+            mPool.execute(task);
+          }
+        }
+      }
+    }, delay);
+  }
+
+  /**
+   * 停止调整，等待中的重试不再执行
+   */
+  void close() {
+    isClosed = true;
+  }
+
+  /**
+   * 修改下载线程数，线程减少时多余的线程在执行完当前分段后不再领取新的分段
+   */
+  private void setThreadNum(int num) {
+    if (num == mThreadNum || num < 1) {
+      return;
+    }
+    Log.d(TAG, "主机【" + mHost + "】下载线程数：" + mThreadNum + " -> " + num);
+    mPool.setMaxNum(num);
+    mThreadNum = num;
+  }
+
+  private void saveThreadNum() {
+    if (TextUtils.isEmpty(mHost)) {
+      return;
+    }
+    synchronized (ThreadNumController.class) {
+      Properties records = getRecords();
+      String value = String.valueOf(mThreadNum);
+      if (value.equals(records.getProperty(mHost))) {
+        return;
+      }
+      records.setProperty(mHost, value);
+      CommonUtil.saveConfig(getRecordFile(), records);
+    }
+  }
+
+  private static Properties getRecords() {
+    if (sRecords == null) {
+      sRecords = CommonUtil.loadConfig(getRecordFile());
+    }
+    return sRecords;
+  }
+
+  private static File getRecordFile() {
+    return new File(AriaManager.APP.getFilesDir().getPath() + RECORD_FILE);
+  }
+}
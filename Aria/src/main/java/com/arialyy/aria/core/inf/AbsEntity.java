@@ -36,6 +36,10 @@ public abstract class AbsEntity extends DbEntity implements IEntity, Parcelable
    * 下载失败计数，每次开始都重置为0
    */
   @Ignore private int failNum = 0;
+  /**
+   * 预计剩余时间，单位：秒，速度为0时为-1
+   */
+  @Ignore private long timeLeft = -1;
 
   /**
    * 扩展字段
@@ -94,6 +98,14 @@ public abstract class AbsEntity extends DbEntity implements IEntity, Parcelable
     this.speed = speed;
   }
 
+  public long getTimeLeft() {
+    return timeLeft;
+  }
+
+  public void setTimeLeft(long timeLeft) {
+    this.timeLeft = timeLeft;
+  }
+
   public String getConvertSpeed() {
     return convertSpeed;
   }
@@ -158,6 +170,7 @@ public abstract class AbsEntity extends DbEntity implements IEntity, Parcelable
     dest.writeLong(this.speed);
     dest.writeString(this.convertSpeed);
     dest.writeInt(this.failNum);
+    dest.writeLong(this.timeLeft);
     dest.writeString(this.str);
     dest.writeLong(this.fileSize);
     dest.writeString(this.convertFileSize);
@@ -171,6 +184,7 @@ public abstract class AbsEntity extends DbEntity implements IEntity, Parcelable
     this.speed = in.readLong();
     this.convertSpeed = in.readString();
     this.failNum = in.readInt();
+    this.timeLeft = in.readLong();
     this.str = in.readString();
     this.fileSize = in.readLong();
     this.convertFileSize = in.readString();
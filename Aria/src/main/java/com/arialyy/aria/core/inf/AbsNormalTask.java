@@ -20,13 +20,6 @@ package com.arialyy.aria.core.inf;
  */
 public abstract class AbsNormalTask<ENTITY extends AbsEntity> extends AbsTask<ENTITY> {
 
-  /**
-   * 暂停任务，并让任务处于等待状态
-   */
-  public void stopAndWait() {
-
-  }
-
   /**
    * 最高优先级命令，最高优先级命令有以下属性
    * 1、在下载队列中，有且只有一个最高优先级任务
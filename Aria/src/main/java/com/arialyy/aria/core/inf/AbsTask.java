@@ -23,6 +23,16 @@ import com.arialyy.aria.util.CommonUtil;
  * Created by AriaL on 2017/6/29.
  */
 public abstract class AbsTask<ENTITY extends AbsEntity> implements ITask<ENTITY> {
+  /**
+   * 后台任务，只在没有其它等待任务时执行
+   */
+  public static final int PRIORITY_BACKGROUND = 0;
+  public static final int PRIORITY_NORMAL = 1;
+  public static final int PRIORITY_HIGH = 2;
+  /**
+   * 紧急任务，等待时间再长的低优先级任务也不会排在它前面
+   */
+  public static final int PRIORITY_CRITICAL = 3;
 
   protected ENTITY mEntity;
   protected Handler mOutHandler;
@@ -34,6 +44,7 @@ public abstract class AbsTask<ENTITY extends AbsEntity> implements ITask<ENTITY>
   protected Context mContext;
 
   protected boolean isHeighestTask = false;
+  private int mPriority = PRIORITY_NORMAL;
 
   /**
    * 任务是否完成
@@ -169,4 +180,26 @@ public abstract class AbsTask<ENTITY extends AbsEntity> implements ITask<ENTITY>
   public boolean isHighestPriorityTask() {
     return isHeighestTask;
   }
+
+  /**
+   * 暂停任务，并让任务处于等待状态，任务让出执行槽位时调用；默认直接暂停任务
+   */
+  public void stopAndWait() {
+    stop();
+  }
+
+  /**
+   * 任务的优先级，{@link #PRIORITY_BACKGROUND}、{@link #PRIORITY_NORMAL}、{@link #PRIORITY_HIGH}、
+   * {@link #PRIORITY_CRITICAL}
+   */
+  public int getPriority() {
+    return mPriority;
+  }
+
+  /**
+   * 设置任务的优先级，等待中的任务需要通过任务队列修改，才能按新的优先级排队
+   */
+  public void setPriority(int priority) {
+    mPriority = Math.max(PRIORITY_BACKGROUND, Math.min(PRIORITY_CRITICAL, priority));
+  }
 }
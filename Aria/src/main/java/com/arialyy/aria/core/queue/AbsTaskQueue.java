@@ -23,7 +23,6 @@ import com.arialyy.aria.core.download.DownloadTask;
 import com.arialyy.aria.core.inf.AbsEntity;
 import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.inf.AbsTaskEntity;
-import com.arialyy.aria.core.inf.IEntity;
 import com.arialyy.aria.core.queue.pool.BaseCachePool;
 import com.arialyy.aria.core.queue.pool.BaseExecutePool;
 import java.util.Set;
@@ -92,17 +91,64 @@ abstract class AbsTaskQueue<TASK extends AbsTask, TASK_ENTITY extends AbsTaskEnt
    */
   public abstract int getConfigMaxNum();
 
+  /**
+   * 启动等待中的任务，直到没有空闲的执行槽位
+   */
+  abstract void startNextTask();
+
+  /**
+   * 让出执行槽位的任务回到所属缓存池的队首
+   */
+  abstract void requeueTask(AbsTask task);
+
+  /**
+   * 获取正在执行的最高优先级任务，执行池中可能同时有单任务和任务组
+   *
+   * @return 没有正在执行的最高优先级任务时返回null
+   */
+  AbsTask getRunningHighestTask() {
+    synchronized (AriaManager.LOCK) {
+      for (AbsTask task : mExecutePool.getAllTask().values()) {
+        if (task.isRunning() && task.isHighestPriorityTask()) {
+          return task;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * 执行槽位的准入和让出规则：
+   * 1、有空闲槽位时，任务直接进入执行池；
+   * 2、没有空闲槽位时，按{@link BaseExecutePool#pollEvictTask(AbsTask)}的规则选出一个任务让出槽位，
+   * 只有优先级不高于新任务的任务才会让出槽位，没有可以让出槽位的任务时，新任务留在缓存池中等待；
+   * 3、减少槽位数时，多出的任务按同样的规则让出槽位；
+   * 4、让出槽位的任务以等待状态暂停，回到所属缓存池的队首，有空闲槽位时由调度器重新启动。
+   *
+   * @param newTask 需要进入执行池的任务，减少槽位时为null
+   * @return 让出槽位的任务，需要调用者执行{@link AbsTask#stopAndWait()}，没有可以让出槽位的任务时返回null
+   */
+  AbsTask evictTask(TASK newTask) {
+    synchronized (AriaManager.LOCK) {
+      AbsTask task = mExecutePool.pollEvictTask(newTask);
+      if (task != null) {
+        requeueTask(task);
+      }
+      return task;
+    }
+  }
+
   /**
    * 获取任务执行池
    */
-  public BaseExecutePool getExecutePool() {
+  public BaseExecutePool<TASK> getExecutePool() {
     return mExecutePool;
   }
 
   /**
    * 获取缓存池
    */
-  public BaseCachePool getCachePool() {
+  public BaseCachePool<TASK> getCachePool() {
     return mCachePool;
   }
 
@@ -131,23 +177,17 @@ abstract class AbsTaskQueue<TASK extends AbsTask, TASK_ENTITY extends AbsTaskEnt
       Log.d(TAG, "设置的下载任务数和配置文件的下载任务数一直，跳过");
       return;
     }
-    //设置的任务数小于配置任务数
-    if (diff <= -1 && mExecutePool.size() >= oldMaxSize) {
-      for (int i = 0, len = Math.abs(diff); i < len; i++) {
-        TASK eTask = mExecutePool.pollTask();
-        if (eTask != null) {
-          stopTask(eTask);
-        }
+    mExecutePool.setMaxNum(downloadNum);
+    //设置的任务数小于正在执行的任务数，多出的任务让出槽位，规则见evictTask(AbsTask)
+    while (mExecutePool.size() > downloadNum) {
+      AbsTask eTask = evictTask(null);
+      if (eTask == null) {
+        break;
       }
+      eTask.stopAndWait();
     }
-    mExecutePool.setMaxNum(downloadNum);
     if (diff >= 1) {
-      for (int i = 0; i < diff; i++) {
-        TASK nextTask = getNextTask();
-        if (nextTask != null && nextTask.getState() == IEntity.STATE_WAIT) {
-          startTask(nextTask);
-        }
-      }
+      startNextTask();
     }
   }
 
@@ -159,12 +199,31 @@ abstract class AbsTaskQueue<TASK extends AbsTask, TASK_ENTITY extends AbsTaskEnt
     return task;
   }
 
+  /**
+   * 启动任务，没有空闲槽位时按{@link #evictTask(AbsTask)}的规则让出槽位
+   */
   @Override public void startTask(TASK task) {
-    if (mExecutePool.putTask(task)) {
+    AbsTask eTask = null;
+    synchronized (AriaManager.LOCK) {
+      if (mExecutePool.getTask(task.getKey()) == null
+          && mExecutePool.size() >= mExecutePool.getMaxNum()) {
+        eTask = evictTask(task);
+        if (eTask == null) {
+          Log.w(TAG, "没有可以让出槽位的任务，任务【" + task.getKey() + "】继续等待");
+          mCachePool.putTask(task);
+          return;
+        }
+      }
+      if (!mExecutePool.putTask(task)) {
+        return;
+      }
       mCachePool.removeTask(task);
-      task.getEntity().setFailNum(0);
-      task.start();
     }
+    if (eTask != null) {
+      eTask.stopAndWait();
+    }
+    task.getEntity().setFailNum(0);
+    task.start();
   }
 
   @Override public void stopTask(TASK task) {
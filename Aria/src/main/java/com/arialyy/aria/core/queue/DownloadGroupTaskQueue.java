@@ -22,11 +22,13 @@ import com.arialyy.aria.core.AriaManager;
 import com.arialyy.aria.core.download.DownloadGroupEntity;
 import com.arialyy.aria.core.download.DownloadGroupTask;
 import com.arialyy.aria.core.download.DownloadGroupTaskEntity;
+import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.queue.pool.BaseCachePool;
 import com.arialyy.aria.core.queue.pool.BaseExecutePool;
 import com.arialyy.aria.core.queue.pool.DownloadSharePool;
-import com.arialyy.aria.core.scheduler.DQueueMapping;
 import com.arialyy.aria.core.scheduler.DownloadGroupSchedulers;
+import com.arialyy.aria.core.scheduler.FairScheduler;
+import java.util.Map;
 
 /**
  * Created by AriaL on 2017/6/29.
@@ -51,7 +53,7 @@ public class DownloadGroupTaskQueue
   }
 
   @Override BaseCachePool<DownloadGroupTask> setCachePool() {
-    return DownloadSharePool.getInstance().cachePool;
+    return DownloadSharePool.getInstance().groupCachePool;
   }
 
   @Override BaseExecutePool<DownloadGroupTask> setExecutePool() {
@@ -65,14 +67,25 @@ public class DownloadGroupTaskQueue
           .createTask(targetName, entity, DownloadGroupSchedulers.getInstance());
       entity.key = entity.getEntity().getGroupName();
       mCachePool.putTask(task);
-
-      DQueueMapping.getInstance().addType(task.getKey(), DQueueMapping.QUEUE_TYPE_DOWNLOAD_GROUP);
     } else {
       Log.e(TAG, "target name 为 null！！");
     }
     return task;
   }
 
+  /**
+   * 设置每个任务组的最大下载速度，单位：kb，为0表示不限速
+   */
+  public void setMaxSpeed(double maxSpeed) {
+    //执行池由单任务和任务组共用
+    Map<String, ?> tasks = mExecutePool.getAllTask();
+    for (Object task : tasks.values()) {
+      if (task instanceof DownloadGroupTask) {
+        ((DownloadGroupTask) task).setMaxSpeed(maxSpeed);
+      }
+    }
+  }
+
   @Override public String getKey(DownloadGroupEntity entity) {
     return entity.getGroupName();
   }
@@ -80,4 +93,19 @@ public class DownloadGroupTaskQueue
   @Override public int getConfigMaxNum() {
     return AriaManager.getInstance(AriaManager.APP).getDownloadConfig().oldMaxTaskNum;
   }
+
+  @Override void startNextTask() {
+    FairScheduler.getInstance().startNextDownloadTask();
+  }
+
+  /**
+   * 单任务和任务组共用执行池，让出槽位的单任务回到单任务的缓存池
+   */
+  @Override void requeueTask(AbsTask task) {
+    if (task instanceof DownloadGroupTask) {
+      mCachePool.putTaskToFirst((DownloadGroupTask) task);
+    } else {
+      DownloadTaskQueue.getInstance().requeueTask(task);
+    }
+  }
 }
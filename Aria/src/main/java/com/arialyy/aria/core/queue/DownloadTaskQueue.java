@@ -22,14 +22,14 @@ import com.arialyy.aria.core.AriaManager;
 import com.arialyy.aria.core.download.DownloadEntity;
 import com.arialyy.aria.core.download.DownloadTask;
 import com.arialyy.aria.core.download.DownloadTaskEntity;
+import com.arialyy.aria.core.download.downloader.SpeedLimiter;
+import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.queue.pool.BaseCachePool;
 import com.arialyy.aria.core.queue.pool.BaseExecutePool;
 import com.arialyy.aria.core.queue.pool.DownloadSharePool;
-import com.arialyy.aria.core.scheduler.DQueueMapping;
 import com.arialyy.aria.core.scheduler.DownloadSchedulers;
-import java.util.LinkedHashSet;
+import com.arialyy.aria.core.scheduler.FairScheduler;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Created by lyy on 2016/8/17.
@@ -68,70 +68,74 @@ public class DownloadTaskQueue
     return AriaManager.getInstance(AriaManager.APP).getDownloadConfig().oldMaxTaskNum;
   }
 
+  @Override void startNextTask() {
+    FairScheduler.getInstance().startNextDownloadTask();
+  }
+
+  /**
+   * 单任务和任务组共用执行池，让出槽位的任务组回到任务组的缓存池
+   */
+  @Override void requeueTask(AbsTask task) {
+    if (task instanceof DownloadTask) {
+      mCachePool.putTaskToFirst((DownloadTask) task);
+    } else {
+      DownloadGroupTaskQueue.getInstance().requeueTask(task);
+    }
+  }
+
   /**
    * 设置任务为最高优先级任务
    */
   public void setTaskHighestPriority(DownloadTask task) {
-    task.setHighestPriority(true);
-    Map<String, DownloadTask> exeTasks = mExecutePool.getAllTask();
-    if (exeTasks != null && !exeTasks.isEmpty()) {
-      Set<String> keys = exeTasks.keySet();
-      for (String key : keys) {
-        DownloadTask temp = exeTasks.get(key);
-        if (temp != null && temp.isRunning() && temp.isHighestPriorityTask() && !temp.getKey()
-            .equals(task.getKey())) {
-          Log.e(TAG, "设置最高优先级任务失败，失败原因【任务中已经有最高优先级任务，请等待上一个最高优先级任务完成，或手动暂停该任务】");
-          task.setHighestPriority(false);
-          return;
-        }
-      }
+    AbsTask highestTask = getRunningHighestTask();
+    if (highestTask != null && !highestTask.getKey().equals(task.getKey())) {
+      Log.e(TAG, "设置最高优先级任务失败，失败原因【任务中已经有最高优先级任务，请等待上一个最高优先级任务完成，或手动暂停该任务】");
+      return;
     }
-    int maxSize = AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMaxTaskNum();
-    int currentSize = mExecutePool.size();
-    if (currentSize == 0 || currentSize < maxSize) {
-      startTask(task);
-    } else {
-      Set<DownloadTask> tempTasks = new LinkedHashSet<>();
-      for (int i = 0; i < maxSize; i++) {
-        DownloadTask oldTsk = mExecutePool.pollTask();
-        if (oldTsk != null && oldTsk.isRunning()) {
-          if (i == maxSize - 1) {
-            oldTsk.stopAndWait();
-            mCachePool.putTaskToFirst(oldTsk);
-            break;
-          }
-          tempTasks.add(oldTsk);
-        }
-      }
-      startTask(task);
+    task.setHighestPriority(true);
+    //没有空闲槽位时，按执行池的规则让出槽位，见evictTask(AbsTask)
+    startTask(task);
+  }
 
-      for (DownloadTask temp : tempTasks) {
-        mExecutePool.putTask(temp);
-      }
-    }
+  /**
+   * 修改任务的优先级，等待中的任务按新的优先级排队，正在执行的任务不受影响
+   *
+   * @param priority {@link DownloadTask#PRIORITY_BACKGROUND}、{@link DownloadTask#PRIORITY_NORMAL}、
+   * {@link DownloadTask#PRIORITY_HIGH}、{@link DownloadTask#PRIORITY_CRITICAL}
+   */
+  public void setTaskPriority(DownloadTask task, int priority) {
+    task.setPriority(priority);
+    mCachePool.updatePriority(task);
   }
 
   /**
-   * 最大下载速度
+   * 设置每个下载任务的最大下载速度，单位：kb，为0表示不限速
    */
   public void setMaxSpeed(double maxSpeed) {
-    Map<String, DownloadTask> tasks = mExecutePool.getAllTask();
-    Set<String> keys = tasks.keySet();
-    for (String key : keys) {
-      DownloadTask task = tasks.get(key);
-      task.setMaxSpeed(maxSpeed);
+    //执行池由单任务和任务组共用
+    Map<String, ?> tasks = mExecutePool.getAllTask();
+    for (Object task : tasks.values()) {
+      if (task instanceof DownloadTask) {
+        ((DownloadTask) task).setMaxSpeed(maxSpeed);
+      }
     }
   }
 
+  /**
+   * 设置所有下载任务的总下载速度，单位：kb，为0表示不限速
+   */
+  public void setGlobalMaxSpeed(double maxSpeed) {
+    SpeedLimiter.getGlobal().setMaxSpeed(maxSpeed);
+  }
+
   @Override public DownloadTask createTask(String target, DownloadTaskEntity entity) {
     DownloadTask task = null;
     if (!TextUtils.isEmpty(target)) {
       task = (DownloadTask) TaskFactory.getInstance()
           .createTask(target, entity, DownloadSchedulers.getInstance());
       entity.key = entity.getEntity().getDownloadPath();
+      task.setPriority(entity.priority);
       mCachePool.putTask(task);
-
-      DQueueMapping.getInstance().addType(task.getKey(), DQueueMapping.QUEUE_TYPE_DOWNLOAD);
     } else {
       Log.e(TAG, "target name 为 null！！");
     }
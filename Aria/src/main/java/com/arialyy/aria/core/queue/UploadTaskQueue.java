@@ -19,9 +19,11 @@ package com.arialyy.aria.core.queue;
 import android.text.TextUtils;
 import android.util.Log;
 import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.queue.pool.BaseCachePool;
 import com.arialyy.aria.core.queue.pool.BaseExecutePool;
 import com.arialyy.aria.core.queue.pool.UploadSharePool;
+import com.arialyy.aria.core.scheduler.FairScheduler;
 import com.arialyy.aria.core.scheduler.UploadSchedulers;
 import com.arialyy.aria.core.upload.UploadEntity;
 import com.arialyy.aria.core.upload.UploadTask;
@@ -63,6 +65,16 @@ public class UploadTaskQueue extends AbsTaskQueue<UploadTask, UploadTaskEntity,
     return AriaManager.getInstance(AriaManager.APP).getUploadConfig().oldMaxTaskNum;
   }
 
+  @Override void startNextTask() {
+    FairScheduler.getInstance().startNextUploadTask();
+  }
+
+  @Override void requeueTask(AbsTask task) {
+    if (task instanceof UploadTask) {
+      mCachePool.putTaskToFirst((UploadTask) task);
+    }
+  }
+
   @Override public UploadTask createTask(String targetName, UploadTaskEntity entity) {
     UploadTask task = null;
     if (!TextUtils.isEmpty(targetName)) {
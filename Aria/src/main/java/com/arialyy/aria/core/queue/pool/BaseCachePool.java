@@ -21,53 +21,112 @@ import android.util.Log;
 import com.arialyy.aria.core.AriaManager;
 import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.inf.ITask;
-import com.arialyy.aria.util.CommonUtil;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Created by lyy on 2016/8/14.
  * 任务缓存池，所有下载任务最先缓存在这个池中
+ * 每个优先级的任务用一个双向链表排队，任务按key索引，添加、查找、删除、修改优先级和取出任务的时间不随任务数增加；
+ * 取任务时优先取高优先级的任务，低优先级任务等待时间越长优先级越高，但不会超过{@link AbsTask#PRIORITY_HIGH}；
+ * 提升后的优先级相同时先取等待时间长的任务，持续加入的高优先级任务不会让低优先级任务一直等待；
+ * 每个队列按进入缓存池的时间排序，队首任务的时间就是队列中最早的时间
  */
 public class BaseCachePool<TASK extends AbsTask> implements IPool<TASK> {
   private static final String TAG = "BaseCachePool";
-  private static final int MAX_NUM = Integer.MAX_VALUE;  //最大下载任务数
-  private static final long TIME_OUT = 1000;
-  private Map<String, TASK> mCacheMap;
-  private LinkedBlockingQueue<TASK> mCacheQueue;
+
+  /**
+   * 等待时间每增加该值，任务的优先级提升一级，单位：毫秒
+   */
+  private static final long AGING_INTERVAL = 60 * 1000;
+
+  private Map<String, Node<TASK>> mCacheMap;
+  //下标为优先级
+  private final List<Bucket<TASK>> mBuckets = new ArrayList<>();
+
+  private static final class Node<TASK> {
+    final String key;
+    final TASK task;
+    int priority;
+    //进入缓存池的时间
+    long time;
+    Node<TASK> prev, next;
+
+    Node(String key, TASK task, int priority, long time) {
+      this.key = key;
+      this.task = task;
+      this.priority = priority;
+      this.time = time;
+    }
+  }
+
+  /**
+   * 同一优先级的任务队列，头尾为哨兵节点
+   */
+  private static final class Bucket<TASK> {
+    final Node<TASK> head = new Node<>(null, null, 0, 0);
+    final Node<TASK> tail = new Node<>(null, null, 0, 0);
+
+    Bucket() {
+      head.next = tail;
+      tail.prev = head;
+    }
+
+    boolean isEmpty() {
+      return head.next == tail;
+    }
+  }
 
   public BaseCachePool() {
-    mCacheQueue = new LinkedBlockingQueue<>(MAX_NUM);
     mCacheMap = new HashMap<>();
+    for (int i = AbsTask.PRIORITY_BACKGROUND; i <= AbsTask.PRIORITY_CRITICAL; i++) {
+      mBuckets.add(new Bucket<TASK>());
+    }
   }
 
   /**
-   * 获取被缓存的任务
+   * 获取被缓存的任务，按优先级从高到低、队列顺序排列
    */
   public Map<String, TASK> getAllTask() {
-    return mCacheMap;
+    synchronized (AriaManager.LOCK) {
+      Map<String, TASK> tasks = new LinkedHashMap<>();
+      for (int i = mBuckets.size() - 1; i >= 0; i--) {
+        Bucket<TASK> bucket = mBuckets.get(i);
+        for (Node<TASK> node = bucket.head.next; node != bucket.tail; node = node.next) {
+          tasks.put(node.key, node.task);
+        }
+      }
+      return tasks;
+    }
   }
 
   /**
-   * 将任务放在队首
+   * 将任务放在同一优先级的队首，任务已经在队列中时移到队首；
+   * 队首任务使用队列中最早的进入时间，原来队首任务的等待时间不会被隐藏
    */
   public boolean putTaskToFirst(TASK task) {
-    if (mCacheQueue.isEmpty()) {
-      return putTask(task);
-    } else {
-      Set<TASK> temps = new LinkedHashSet<>();
-      temps.add(task);
-      for (int i = 0, len = size(); i < len; i++) {
-        TASK temp = pollTask();
-        temps.add(temp);
+    synchronized (AriaManager.LOCK) {
+      if (task == null) {
+        Log.e(TAG, "下载任务不能为空！！");
+        return false;
       }
-      for (TASK t : temps) {
-        putTask(t);
+      String key = task.getKey();
+      long time = currentTime();
+      Node<TASK> node = mCacheMap.remove(key);
+      if (node != null) {
+        time = node.time;
+        unlink(node);
       }
+      Bucket<TASK> bucket = mBuckets.get(task.getPriority());
+      if (!bucket.isEmpty()) {
+        time = Math.min(time, bucket.head.next.time);
+      }
+      node = new Node<>(key, task, task.getPriority(), time);
+      mCacheMap.put(key, node);
+      linkAfter(bucket.head, node);
       return true;
     }
   }
@@ -78,36 +137,61 @@ public class BaseCachePool<TASK extends AbsTask> implements IPool<TASK> {
         Log.e(TAG, "下载任务不能为空！！");
         return false;
       }
-      String url = task.getKey();
-      if (mCacheQueue.contains(task)) {
-        Log.w(TAG, "队列中已经包含了该任务，任务下载链接【" + url + "】");
+      String key = task.getKey();
+      if (mCacheMap.containsKey(key)) {
+        Log.w(TAG, "队列中已经包含了该任务，任务下载链接【" + key + "】");
         return false;
       } else {
-        boolean s = mCacheQueue.offer(task);
-        Log.d(TAG, "任务添加" + (s ? "成功" : "失败，【" + url + "】"));
-        if (s) {
-          mCacheMap.put(CommonUtil.keyToHashKey(url), task);
+        Node<TASK> node = new Node<>(key, task, task.getPriority(), currentTime());
+        mCacheMap.put(key, node);
+        linkAfter(mBuckets.get(node.priority).tail.prev, node);
+        Log.d(TAG, "任务添加成功");
+        return true;
+      }
+    }
+  }
+
+  /**
+   * 任务的优先级修改后，将任务移到新优先级的队列中，保留进入缓存池的时间，按时间插入；
+   * 任务不在缓存池中时不处理
+   *
+   * @return true，任务在缓存池中
+   */
+  public boolean updatePriority(TASK task) {
+    synchronized (AriaManager.LOCK) {
+      if (task == null) {
+        return false;
+      }
+      Node<TASK> node = mCacheMap.get(task.getKey());
+      if (node == null) {
+        return false;
+      }
+      int priority = task.getPriority();
+      if (node.priority != priority) {
+        unlink(node);
+        node.priority = priority;
+        //从队尾向前查找，通常只需要跳过少量更晚进入的任务
+        Node<TASK> prev = mBuckets.get(priority).tail.prev;
+        while (prev.key != null && prev.time > node.time) {
+          prev = prev.prev;
         }
-        return s;
+        linkAfter(prev, node);
       }
+      return true;
     }
   }
 
   @Override public TASK pollTask() {
     synchronized (AriaManager.LOCK) {
-      try {
-        TASK task;
-        task = mCacheQueue.poll(TIME_OUT, TimeUnit.MICROSECONDS);
-        if (task != null) {
-          String url = task.getKey();
-          mCacheMap.remove(CommonUtil.keyToHashKey(url));
-        }
-        return task;
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+      int index = nextBucket();
+      if (index < 0) {
+        return null;
       }
+      Node<TASK> node = mBuckets.get(index).head.next;
+      unlink(node);
+      mCacheMap.remove(node.key);
+      return node.task;
     }
-    return null;
   }
 
   @Override public TASK getTask(String downloadUrl) {
@@ -116,8 +200,8 @@ public class BaseCachePool<TASK extends AbsTask> implements IPool<TASK> {
         Log.e(TAG, "请传入有效的下载链接");
         return null;
       }
-      String key = CommonUtil.keyToHashKey(downloadUrl);
-      return mCacheMap.get(key);
+      Node<TASK> node = mCacheMap.get(downloadUrl);
+      return node == null ? null : node.task;
     }
   }
 
@@ -127,9 +211,7 @@ public class BaseCachePool<TASK extends AbsTask> implements IPool<TASK> {
         Log.e(TAG, "任务不能为空");
         return false;
       } else {
-        String key = CommonUtil.keyToHashKey(task.getKey());
-        mCacheMap.remove(key);
-        return mCacheQueue.remove(task);
+        return remove(task.getKey());
       }
     }
   }
@@ -140,14 +222,93 @@ public class BaseCachePool<TASK extends AbsTask> implements IPool<TASK> {
         Log.e(TAG, "请传入有效的下载链接");
         return false;
       }
-      String key = CommonUtil.keyToHashKey(downloadUrl);
-      TASK task = mCacheMap.get(key);
-      mCacheMap.remove(key);
-      return mCacheQueue.remove(task);
+      return remove(downloadUrl);
     }
   }
 
   @Override public int size() {
-    return mCacheQueue.size();
+    synchronized (AriaManager.LOCK) {
+      return mCacheMap.size();
+    }
+  }
+
+  /**
+   * 获取下一个任务加上等待时间后的优先级
+   *
+   * @return 缓存池中没有任务时返回-1
+   */
+  public int getNextPriority() {
+    synchronized (AriaManager.LOCK) {
+      int index = nextBucket();
+      return index < 0 ? -1 : getAgingPriority(index, currentTime());
+    }
+  }
+
+  /**
+   * 选择下一个任务所在的队列，比较每个队列队首任务加上等待时间后的优先级，相同时选择队首任务等待时间长的队列，
+   * 等待时间也相同时选择原优先级高的队列
+   *
+   * @return 队列的下标，没有任务时返回-1
+   */
+  private int nextBucket() {
+    long now = currentTime();
+    int target = -1;
+    int best = -1;
+    long bestTime = Long.MAX_VALUE;
+    for (int i = mBuckets.size() - 1; i >= 0; i--) {
+      Bucket<TASK> bucket = mBuckets.get(i);
+      if (bucket.isEmpty()) {
+        continue;
+      }
+      int priority = getAgingPriority(i, now);
+      long time = bucket.head.next.time;
+      if (priority > best || (priority == best && time < bestTime)) {
+        best = priority;
+        bestTime = time;
+        target = i;
+      }
+    }
+    return target;
+  }
+
+  /**
+   * 队列队首任务加上等待时间后的优先级，队首任务的进入时间是队列中最早的
+   */
+  private int getAgingPriority(int index, long now) {
+    if (index >= AbsTask.PRIORITY_HIGH) {
+      return index;
+    }
+    long wait = now - mBuckets.get(index).head.next.time;
+    return (int) Math.min(AbsTask.PRIORITY_HIGH, index + wait / AGING_INTERVAL);
+  }
+
+  /**
+   * 当前时间，单位：毫秒
+   */
+  long currentTime() {
+    return System.currentTimeMillis();
+  }
+
+  private boolean remove(String key) {
+    Node<TASK> node = mCacheMap.remove(key);
+    if (node == null) {
+      return false;
+    }
+    unlink(node);
+    return true;
+  }
+
+  private void linkAfter(Node<TASK> prev, Node<TASK> node) {
+    node.prev = prev;
+    node.next = prev.next;
+    prev.next.prev = node;
+    prev.next = node;
+  }
+
+  private void unlink(Node<TASK> node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
   }
-}
\ No newline at end of file
+}
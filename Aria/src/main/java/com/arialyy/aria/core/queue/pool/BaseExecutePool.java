@@ -21,28 +21,25 @@ import android.util.Log;
 import com.arialyy.aria.core.AriaManager;
 import com.arialyy.aria.core.inf.AbsTask;
 import com.arialyy.aria.core.inf.ITask;
-import com.arialyy.aria.core.scheduler.DQueueMapping;
-import com.arialyy.aria.util.CommonUtil;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Created by lyy on 2016/8/15.
  * 任务执行池，所有当前下载任务都该任务池中，默认下载大小为2
+ * 执行池的大小就是执行槽位数，修改槽位数只修改上限，不重建队列；
+ * 执行池只负责槽位和让出槽位的任务的选择，没有空闲槽位时不会接收新任务，
+ * 任务的准入和让出由任务队列处理，规则见AbsTaskQueue#evictTask(AbsTask)
  */
 public class BaseExecutePool<TASK extends AbsTask> implements IPool<TASK> {
   private final String TAG = "BaseExecutePool";
-  final long TIME_OUT = 1000;
-  ArrayBlockingQueue<TASK> mExecuteQueue;
+  //按任务进入执行池的顺序排列
   Map<String, TASK> mExecuteMap;
-  int mSize;
+  volatile int mSize;
 
   BaseExecutePool() {
     mSize = getMaxSize();
-    mExecuteQueue = new ArrayBlockingQueue<>(mSize);
-    mExecuteMap = new HashMap<>();
+    mExecuteMap = new LinkedHashMap<>();
   }
 
   /**
@@ -68,38 +65,56 @@ public class BaseExecutePool<TASK extends AbsTask> implements IPool<TASK> {
         return false;
       }
       String url = task.getKey();
-      if (mExecuteQueue.contains(task)) {
+      if (mExecuteMap.containsKey(url)) {
         Log.e(TAG, "队列中已经包含了该任务，任务key【" + url + "】");
         return false;
-      } else {
-        if (mExecuteQueue.size() >= mSize) {
-          if (pollFirstTask()) {
-            return putNewTask(task);
-          }
-        } else {
-          return putNewTask(task);
-        }
       }
+      if (mExecuteMap.size() >= mSize) {
+        Log.w(TAG, "执行池已满，任务key【" + url + "】");
+        return false;
+      }
+      return putNewTask(task);
     }
-    return false;
   }
 
   /**
-   * 设置执行队列最大任务数
+   * 设置执行队列最大任务数，立即生效；槽位减少时不会暂停任务，多出的任务由调用者处理
    *
    * @param maxNum 下载数
    */
   public void setMaxNum(int maxNum) {
-    try {
-      ArrayBlockingQueue<TASK> temp = new ArrayBlockingQueue<>(maxNum);
-      TASK task;
-      while ((task = mExecuteQueue.poll(TIME_OUT, TimeUnit.MICROSECONDS)) != null) {
-        temp.offer(task);
+    mSize = maxNum;
+  }
+
+  /**
+   * 获取执行槽位数
+   */
+  public int getMaxNum() {
+    return mSize;
+  }
+
+  /**
+   * 取出一个需要让出槽位的任务，规则同{@link #findEvictTask(AbsTask)}，任务由调用者暂停和重新排队
+   *
+   * @return 没有可以暂停的任务时返回null
+   */
+  public TASK pollEvictTask() {
+    return pollEvictTask(null);
+  }
+
+  /**
+   * 为新任务取出一个需要让出槽位的任务，规则同{@link #findEvictTask(AbsTask)}
+   *
+   * @param newTask 需要进入执行池的任务
+   * @return 没有可以暂停的任务时返回null
+   */
+  public TASK pollEvictTask(TASK newTask) {
+    synchronized (AriaManager.LOCK) {
+      TASK task = findEvictTask(newTask);
+      if (task != null) {
+        mExecuteMap.remove(task.getKey());
       }
-      mExecuteQueue = temp;
-      mSize = maxNum;
-    } catch (InterruptedException e) {
-      e.printStackTrace();
+      return task;
     }
   }
 
@@ -109,49 +124,43 @@ public class BaseExecutePool<TASK extends AbsTask> implements IPool<TASK> {
    * @param newTask 新任务
    */
   boolean putNewTask(TASK newTask) {
-    String url = newTask.getKey();
-    boolean s = mExecuteQueue.offer(newTask);
-    Log.w(TAG, "任务添加" + (s ? "成功" : "失败，【" + url + "】"));
-    if (s) {
-      mExecuteMap.put(CommonUtil.keyToHashKey(url), newTask);
-    }
-    return s;
+    mExecuteMap.put(newTask.getKey(), newTask);
+    Log.w(TAG, "任务添加成功");
+    return true;
   }
 
   /**
-   * 队列满时，将移除下载队列中的第一个任务
+   * 查找需要让出槽位的任务：最高优先级任务不会被暂停；其它任务中优先级最低的任务让出槽位，
+   * 优先级相同时，最早进入执行池的任务让出槽位；
+   * 有新任务时，只有优先级不高于新任务的任务才让出槽位，最高优先级的新任务不受该限制
+   *
+   * @param newTask 需要进入执行池的任务，为null表示减少槽位
    */
-  boolean pollFirstTask() {
-    try {
-      TASK oldTask = mExecuteQueue.poll(TIME_OUT, TimeUnit.MICROSECONDS);
-      if (oldTask == null) {
-        Log.e(TAG, "移除任务失败");
-        return false;
+  TASK findEvictTask(TASK newTask) {
+    TASK evict = null;
+    for (TASK task : mExecuteMap.values()) {
+      if (task.isHighestPriorityTask()) {
+        continue;
+      }
+      if (evict == null || task.getPriority() < evict.getPriority()) {
+        evict = task;
       }
-      oldTask.stop();
-      String key = CommonUtil.keyToHashKey(oldTask.getKey());
-      mExecuteMap.remove(key);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-      return false;
     }
-    return true;
+    if (evict != null && newTask != null && !newTask.isHighestPriorityTask()
+        && evict.getPriority() > newTask.getPriority()) {
+      return null;
+    }
+    return evict;
   }
 
   @Override public TASK pollTask() {
     synchronized (AriaManager.LOCK) {
-      try {
-        TASK task;
-        task = mExecuteQueue.poll(TIME_OUT, TimeUnit.MICROSECONDS);
-        if (task != null) {
-          String url = task.getKey();
-          mExecuteMap.remove(CommonUtil.keyToHashKey(url));
-        }
-        return task;
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+      if (mExecuteMap.isEmpty()) {
+        return null;
       }
-      return null;
+      TASK task = mExecuteMap.values().iterator().next();
+      mExecuteMap.remove(task.getKey());
+      return task;
     }
   }
 
@@ -161,8 +170,7 @@ public class BaseExecutePool<TASK extends AbsTask> implements IPool<TASK> {
         Log.e(TAG, "请传入有效的任务key");
         return null;
       }
-      String key = CommonUtil.keyToHashKey(downloadUrl);
-      return mExecuteMap.get(key);
+      return mExecuteMap.get(downloadUrl);
     }
   }
 
@@ -183,16 +191,13 @@ public class BaseExecutePool<TASK extends AbsTask> implements IPool<TASK> {
         Log.e(TAG, "请传入有效的任务key");
         return false;
       }
-      String convertKey = CommonUtil.keyToHashKey(key);
-      TASK task = mExecuteMap.get(convertKey);
-      mExecuteMap.remove(convertKey);
-
-      DQueueMapping.getInstance().removeType(key);
-      return mExecuteQueue.remove(task);
+      return mExecuteMap.remove(key) != null;
     }
   }
 
   @Override public int size() {
-    return mExecuteQueue.size();
+    synchronized (AriaManager.LOCK) {
+      return mExecuteMap.size();
+    }
   }
-}
\ No newline at end of file
+}
@@ -16,20 +16,24 @@
 package com.arialyy.aria.core.queue.pool;
 
 import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.scheduler.FairScheduler;
 
 /**
  * Created by Aria.Lao on 2017/7/17.
- * 下载任务池，该池子为简单任务和任务组共用
+ * 下载任务池，执行池为简单任务和任务组共用；两种任务分别在自己的缓存池中排队，
+ * 由{@link FairScheduler}决定下一个执行的任务
  */
 public class DownloadSharePool {
   private static volatile DownloadSharePool INSTANCE;
 
   public DownloadExecutePool executePool;
   public BaseCachePool cachePool;
+  public BaseCachePool groupCachePool;
 
   private DownloadSharePool() {
     executePool = new DownloadExecutePool<>();
     cachePool = new BaseCachePool<>();
+    groupCachePool = new BaseCachePool<>();
   }
 
   public static DownloadSharePool getInstance() {
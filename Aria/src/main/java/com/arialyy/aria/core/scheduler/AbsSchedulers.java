@@ -139,11 +139,7 @@ abstract class AbsSchedulers<TASK_ENTITY extends AbsTaskEntity, ENTITY extends A
         }
       case CANCEL:
         mQueue.removeTask(entity);
-        if (mQueue.getCurrentExePoolNum() < AriaManager.getInstance(AriaManager.APP)
-            .getUploadConfig()
-            .getMaxTaskNum()) {
-          startNextTask();
-        }
+        startNextTask();
         break;
       case COMPLETE:
         mQueue.removeTask(entity);
@@ -256,32 +252,13 @@ abstract class AbsSchedulers<TASK_ENTITY extends AbsTaskEntity, ENTITY extends A
   }
 
   /**
-   * 启动下一个任务，条件：任务停止，取消下载，任务完成
+   * 启动下一个任务，条件：任务停止，取消下载，任务完成；由{@link FairScheduler}选择启动的任务
    */
   protected void startNextTask() {
-    TASK newTask = mQueue.getNextTask();
-    if (newTask == null) {
-      Log.w(TAG, "没有下一任务");
-      return;
-    }
-    if (newTask.getEntity().getState() == IEntity.STATE_WAIT) {
-      mQueue.startTask(newTask);
+    if (getSchedulerType() == UPLOAD) {
+      FairScheduler.getInstance().startNextUploadTask();
+    } else {
+      FairScheduler.getInstance().startNextDownloadTask();
     }
   }
-
-  /**
-   * 是否有下一任务
-   *
-   * @return {@code true} 有，{@code false} 无
-   */
-  boolean hasNextTask() {
-    return mQueue.getCurrentCachePoolNum() > 0;
-  }
-
-  /**
-   * 获取正在执行的队列数
-   */
-  int getExeTaskNum() {
-    return mQueue.getCurrentExePoolNum();
-  }
 }
@@ -50,25 +50,4 @@ public class DownloadGroupSchedulers extends
   @Override String getProxySuffix() {
     return "$$DownloadGroupListenerProxy";
   }
-
-  @Override protected void startNextTask() {
-    if (getExeTaskNum() + DownloadSchedulers.getInstance().getExeTaskNum()
-        >= AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMaxTaskNum()) {
-      return;
-    }
-    if (!DownloadSchedulers.getInstance().hasNextTask()) {
-      nextSelf();
-    } else {
-      Integer nextType = DQueueMapping.getInstance().nextType();
-      if (nextType == DQueueMapping.QUEUE_TYPE_DOWNLOAD) {
-        DownloadSchedulers.getInstance().nextSelf();
-      } else {
-        nextSelf();
-      }
-    }
-  }
-
-  void nextSelf() {
-    super.startNextTask();
-  }
 }
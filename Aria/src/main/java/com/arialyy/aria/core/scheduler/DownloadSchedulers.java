@@ -54,25 +54,4 @@ public class DownloadSchedulers
   @Override String getProxySuffix() {
     return "$$DownloadListenerProxy";
   }
-
-  @Override protected void startNextTask() {
-    if (getExeTaskNum() + DownloadGroupSchedulers.getInstance().getExeTaskNum()
-        >= AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMaxTaskNum()) {
-      return;
-    }
-    if (!DownloadGroupSchedulers.getInstance().hasNextTask()) {
-      nextSelf();
-    } else {
-      Integer nextType = DQueueMapping.getInstance().nextType();
-      if (nextType == DQueueMapping.QUEUE_TYPE_DOWNLOAD_GROUP) {
-        DownloadGroupSchedulers.getInstance().nextSelf();
-      } else {
-        nextSelf();
-      }
-    }
-  }
-
-  void nextSelf() {
-    super.startNextTask();
-  }
 }
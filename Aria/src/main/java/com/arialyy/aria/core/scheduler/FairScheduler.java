@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.scheduler;
+
+import android.util.Log;
+import com.arialyy.aria.core.AriaManager;
+import com.arialyy.aria.core.download.DownloadGroupTask;
+import com.arialyy.aria.core.download.DownloadTask;
+import com.arialyy.aria.core.inf.AbsTask;
+import com.arialyy.aria.core.inf.IEntity;
+import com.arialyy.aria.core.queue.DownloadGroupTaskQueue;
+import com.arialyy.aria.core.queue.DownloadTaskQueue;
+import com.arialyy.aria.core.queue.ITaskQueue;
+import com.arialyy.aria.core.queue.UploadTaskQueue;
+import com.arialyy.aria.core.queue.pool.BaseCachePool;
+import com.arialyy.aria.core.queue.pool.BaseExecutePool;
+import com.arialyy.aria.core.upload.UploadTask;
+
+/**
+ * 执行槽位调度器，所有队列共用，有空闲的执行槽位时决定下一个执行的任务
+ * 下载队列的执行槽位由单任务和任务组共享，上传队列使用自己的执行槽位；每种任务在自己的缓存池中排队。
+ * 选择时先比较每种任务下一个等待任务的优先级（含等待时间的提升），相同时选择占用槽位和权重比值最小的任务类型，
+ * 比值也相同时选择最久没有被调度的类型。因此大量任务组不会阻塞高优先级的单任务，反之亦然
+ */
+public final class FairScheduler {
+  private static final String TAG = "FairScheduler";
+  private static volatile FairScheduler INSTANCE = null;
+
+  private final Lane<?>[] mDownloadLanes;
+  private final Lane<?>[] mUploadLanes;
+  //调度次数，用于判断最久没有被调度的任务类型
+  private long mSeq = 0;
+
+  /**
+   * 一种任务的等待队列
+   */
+  private static final class Lane<TASK extends AbsTask<?>> {
+    final int type;
+    final ITaskQueue<TASK, ?, ?> queue;
+    final BaseCachePool<TASK> cachePool;
+    final Class<TASK> taskClass;
+    //正在执行的任务数，每次选择时重新统计
+    int running;
+    long lastSeq;
+
+    Lane(int type, ITaskQueue<TASK, ?, ?> queue, BaseCachePool<TASK> cachePool,
+        Class<TASK> taskClass) {
+      this.type = type;
+      this.queue = queue;
+      this.cachePool = cachePool;
+      this.taskClass = taskClass;
+    }
+  }
+
+  private FairScheduler() {
+    DownloadTaskQueue dQueue = DownloadTaskQueue.getInstance();
+    DownloadGroupTaskQueue gQueue = DownloadGroupTaskQueue.getInstance();
+    UploadTaskQueue uQueue = UploadTaskQueue.getInstance();
+    mDownloadLanes = new Lane<?>[] {
+        new Lane<>(AbsSchedulers.DOWNLOAD, dQueue, dQueue.getCachePool(), DownloadTask.class),
+        new Lane<>(AbsSchedulers.DOWNLOAD_GROUP, gQueue, gQueue.getCachePool(),
+            DownloadGroupTask.class)
+    };
+    mUploadLanes = new Lane<?>[] {
+        new Lane<>(AbsSchedulers.UPLOAD, uQueue, uQueue.getCachePool(), UploadTask.class)
+    };
+  }
+
+  public static FairScheduler getInstance() {
+    if (INSTANCE == null) {
+      synchronized (AriaManager.LOCK) {
+        if (INSTANCE == null) {
+          INSTANCE = new FairScheduler();
+        }
+      }
+    }
+    return INSTANCE;
+  }
+
+  /**
+   * 启动等待中的单任务和任务组，直到下载队列没有空闲的执行槽位
+   */
+  public void startNextDownloadTask() {
+    schedule(mDownloadLanes, DownloadTaskQueue.getInstance().getExecutePool(),
+        AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getMaxTaskNum());
+  }
+
+  /**
+   * 启动等待中的上传任务，直到上传队列没有空闲的执行槽位
+   */
+  public void startNextUploadTask() {
+    schedule(mUploadLanes, UploadTaskQueue.getInstance().getExecutePool(),
+        AriaManager.getInstance(AriaManager.APP).getUploadConfig().getMaxTaskNum());
+  }
+
+  private void schedule(Lane<?>[] lanes, BaseExecutePool<?> pool, int maxNum) {
+    synchronized (AriaManager.LOCK) {
+      while (pool.size() < maxNum) {
+        Lane<?> lane = nextLane(lanes, pool);
+        if (lane == null) {
+          Log.w(TAG, "没有下一任务");
+          return;
+        }
+        lane.lastSeq = ++mSeq;
+        if (!startNextTask(lane)) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * 启动队列中的下一个任务，不能启动的任务记录原因后从等待队列中移除；
+   * 让出槽位后还没有完全停止的任务放回队首，等待下一次调度
+   *
+   * @return false，本次调度需要结束
+   */
+  private <TASK extends AbsTask<?>> boolean startNextTask(Lane<TASK> lane) {
+    TASK task = lane.queue.getNextTask();
+    if (task == null) {
+      return false;
+    }
+    String key = task.getKey();
+    if (lane.queue.taskIsRunning(key)) {
+      Log.w(TAG, "任务【" + key + "】已经在执行，从等待队列中移除");
+      return true;
+    }
+    if (task.isRunning()) {
+      Log.w(TAG, "任务【" + key + "】正在停止，等待下一次调度");
+      lane.cachePool.putTaskToFirst(task);
+      return false;
+    }
+    int state = task.getEntity().getState();
+    if (state != IEntity.STATE_WAIT) {
+      Log.w(TAG, "任务【" + key + "】的状态为" + state + "，不是等待状态，从等待队列中移除");
+      return true;
+    }
+    lane.queue.startTask(task);
+    return true;
+  }
+
+  /**
+   * 选择下一个启动任务的队列
+   *
+   * @return 没有等待中的任务时返回null
+   */
+  private Lane<?> nextLane(Lane<?>[] lanes, BaseExecutePool<?> pool) {
+    for (Lane<?> lane : lanes) {
+      lane.running = 0;
+    }
+    for (AbsTask<?> task : pool.getAllTask().values()) {
+      for (Lane<?> lane : lanes) {
+        if (lane.taskClass.isInstance(task)) {
+          lane.running++;
+          break;
+        }
+      }
+    }
+    Lane<?> target = null;
+    int best = -1;
+    for (Lane<?> lane : lanes) {
+      int priority = lane.cachePool.getNextPriority();
+      if (priority < 0) {
+        continue;
+      }
+      if (target == null || priority > best || (priority == best && isFairer(lane, target))) {
+        target = lane;
+        best = priority;
+      }
+    }
+    return target;
+  }
+
+  /**
+   * 比较启动一个任务后两种任务占用槽位和权重的比值，比值相同时最久没有被调度的优先
+   *
+   * @return true，应该优先启动{@code lane}的任务
+   */
+  private boolean isFairer(Lane<?> lane, Lane<?> other) {
+    long share = (long) (lane.running + 1) * getWeight(other);
+    long otherShare = (long) (other.running + 1) * getWeight(lane);
+    if (share != otherShare) {
+      return share < otherShare;
+    }
+    return lane.lastSeq < other.lastSeq;
+  }
+
+  private int getWeight(Lane<?> lane) {
+    switch (lane.type) {
+      case AbsSchedulers.DOWNLOAD:
+        return AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getTaskWeight();
+      case AbsSchedulers.DOWNLOAD_GROUP:
+        return AriaManager.getInstance(AriaManager.APP).getDownloadConfig().getGroupWeight();
+      default:
+        return 1;
+    }
+  }
+}
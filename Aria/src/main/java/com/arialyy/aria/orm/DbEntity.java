@@ -17,12 +17,7 @@
 package com.arialyy.aria.orm;
 
 import android.support.annotation.NonNull;
-import com.arialyy.aria.util.CommonUtil;
-import java.lang.reflect.Field;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Created by lyy on 2015/11/2.
@@ -120,6 +115,33 @@ public class DbEntity {
     util.delData(clazz, expression);
   }
 
+  /**
+   * 在一个事务中保存多条数据，表中已经有的数据更新，否则插入
+   *
+   * @return {@code true} 成功，{@code false} 失败，所有数据已经回滚
+   */
+  public static boolean saveAll(List<? extends DbEntity> entities) {
+    return DbUtil.getInstance().batch(entities, DbUtil.BATCH_SAVE);
+  }
+
+  /**
+   * 在一个事务中修改多条数据
+   *
+   * @return {@code true} 成功，{@code false} 失败，所有数据已经回滚
+   */
+  public static boolean updateAll(List<? extends DbEntity> entities) {
+    return DbUtil.getInstance().batch(entities, DbUtil.BATCH_UPDATE);
+  }
+
+  /**
+   * 在一个事务中删除多条数据
+   *
+   * @return {@code true} 成功，{@code false} 失败，所有数据已经回滚
+   */
+  public static boolean deleteAll(List<? extends DbEntity> entities) {
+    return DbUtil.getInstance().batch(entities, DbUtil.BATCH_DELETE);
+  }
+
   /**
    * 修改数据
    */
@@ -127,6 +149,20 @@ public class DbEntity {
     DbUtil.getInstance().modifyData(this);
   }
 
+  /**
+   * 延迟修改数据，短时间内的多次修改只写入最后一次，适合下载状态、进度这类频繁变化的数据
+   */
+  public void postUpdate() {
+    DbUtil.getInstance().postModifyData(this);
+  }
+
+  /**
+   * 立即写入所有延迟修改的数据
+   */
+  public static void flushData() {
+    DbUtil.getInstance().flush();
+  }
+
   /**
    * 保存自身，如果表中已经有数据，则更新数据，否则插入数据
    */
@@ -153,49 +189,5 @@ public class DbEntity {
    */
   public void insert() {
     DbUtil.getInstance().insertData(this);
-    updateRowID();
-  }
-
-  private <T extends DbEntity> T findFirst(Class<T> clazz, @NonNull String[] wheres,
-      @NonNull String[] values) {
-    DbUtil util = DbUtil.getInstance();
-    List<T> list = util.findData(clazz, wheres, values);
-    return list == null ? null : list.get(0);
-  }
-
-  private void updateRowID() {
-    try {
-      List<Field> fields = CommonUtil.getAllFields(getClass());
-      List<String> where = new ArrayList<>();
-      List<String> values = new ArrayList<>();
-      for (Field field : fields) {
-        field.setAccessible(true);
-        if (SqlHelper.ignoreField(field)) {
-          continue;
-        }
-        where.add(field.getName());
-        Type type = field.getType();
-        if (SqlHelper.isOneToOne(field)) {
-          values.add(SqlHelper.getOneToOneParams(field));
-        } else if (type == List.class) {
-          if (SqlHelper.isOneToMany(field)) {
-            values.add(SqlHelper.getOneToManyElementParams(field));
-          } else {
-            values.add(SqlHelper.list2Str(this, field));
-          }
-        } else if (type == Map.class) {
-          values.add(SqlHelper.map2Str((Map<String, String>) field.get(this)));
-        } else {
-          values.add(field.get(this) + "");
-        }
-      }
-      DbEntity entity = findFirst(getClass(), where.toArray(new String[where.size()]),
-          values.toArray(new String[values.size()]));
-      if (entity != null) {
-        rowID = entity.rowID;
-      }
-    } catch (IllegalAccessException e) {
-      e.printStackTrace();
-    }
   }
 }
\ No newline at end of file
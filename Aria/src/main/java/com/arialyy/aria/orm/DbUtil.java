@@ -25,7 +25,10 @@ import android.util.Log;
 import com.arialyy.aria.core.AriaManager;
 import com.arialyy.aria.util.CheckUtil;
 import com.arialyy.aria.util.CommonUtil;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by lyy on 2015/2/11.
@@ -33,10 +36,20 @@ import java.util.List;
  */
 public class DbUtil {
   private static final String TAG = "DbUtil";
+  /**
+   * 延迟写入的间隔，单位：毫秒
+   */
+  private static final long FLUSH_INTERVAL = 2 * 1000;
+  static final int BATCH_SAVE = 1;
+  static final int BATCH_UPDATE = 2;
+  static final int BATCH_DELETE = 3;
   private volatile static DbUtil INSTANCE = null;
   private int ROW_ID = 7;
   private SQLiteDatabase mDb;
   private SqlHelper mHelper;
+  //等待写入的数据，key为表名和rowid，同一行多次修改只保留最后一次
+  private final Map<String, DbEntity> mPendingData = new LinkedHashMap<>();
+  private boolean isFlushScheduled = false;
 
   private DbUtil() {
 
@@ -88,6 +101,88 @@ public class DbUtil {
     SqlHelper.modifyData(mDb, dbEntity);
   }
 
+  /**
+   * 在一个事务中批量操作数据，出现异常时回滚，回滚的插入数据的rowID恢复为-1
+   *
+   * @param type {@link #BATCH_SAVE}、{@link #BATCH_UPDATE}、{@link #BATCH_DELETE}
+   * @return {@code true} 操作成功，{@code false} 操作失败，数据已经回滚
+   */
+  synchronized boolean batch(List<? extends DbEntity> entities, int type) {
+    if (entities == null || entities.isEmpty()) {
+      return true;
+    }
+    checkDb();
+    List<DbEntity> inserted = new ArrayList<>();
+    mDb.beginTransaction();
+    try {
+      for (DbEntity entity : entities) {
+        switch (type) {
+          case BATCH_SAVE:
+            if (entity.rowID >= 0 && exists(entity.getClass(), entity.rowID)) {
+              SqlHelper.modifyData(mDb, entity);
+            } else {
+              inserted.add(entity);
+              SqlHelper.insertData(mDb, entity);
+            }
+            break;
+          case BATCH_UPDATE:
+            SqlHelper.modifyData(mDb, entity);
+            break;
+          case BATCH_DELETE:
+            SqlHelper.delData(mDb, entity);
+            break;
+        }
+      }
+      mDb.setTransactionSuccessful();
+      return true;
+    } catch (Exception e) {
+      Log.e(TAG, "批量操作数据失败\n" + CommonUtil.getPrintException(e));
+      for (DbEntity entity : inserted) {
+        entity.rowID = -1;
+      }
+      return false;
+    } finally {
+      mDb.endTransaction();
+    }
+  }
+
+  /**
+   * 延迟修改某行数据，{@link #FLUSH_INTERVAL}毫秒内同一行的多次修改只写入最后一次，
+   * 所有等待写入的数据在一个事务中写入
+   */
+  void postModifyData(DbEntity dbEntity) {
+    if (dbEntity.rowID < 0) {
+      modifyData(dbEntity);
+      return;
+    }
+    synchronized (mPendingData) {
+      mPendingData.put(CommonUtil.getClassName(dbEntity) + "_" + dbEntity.rowID, dbEntity);
+      if (isFlushScheduled) {
+        return;
+      }
+      isFlushScheduled = true;
+    }
+    //计时线程只负责计时，事务在流程线程池中写入，避免阻塞进度回调
+    final AriaManager manager = AriaManager.getInstance(AriaManager.APP);
+    manager.getProgressTicker().schedule(new Runnable() {
+      @Override public void run() {
+        manager.getExecutorManager().executeFlow(new Runnable() {
+          @Override public void run() {
+            flush();
+          }
+        });
+      }
+    }, FLUSH_INTERVAL);
+  }
+
+  /**
+   * 立即写入所有等待中的数据
+   */
+  synchronized void flush() {
+    openDb();
+    flushPendingData();
+  }
+
   /**
    * 遍历所有数据
    */
@@ -109,6 +204,10 @@ public class DbUtil {
    */
   synchronized <T extends DbEntity> boolean isExist(Class<T> clazz, int rowId) {
     checkDb();
+    return exists(clazz, rowId);
+  }
+
+  private boolean exists(Class clazz, int rowId) {
     String sql = "SELECT rowid FROM " + CommonUtil.getClassName(clazz) + " WHERE rowid=" + rowId;
     Cursor cursor = mDb.rawQuery(sql, null);
     boolean isExist = cursor.getCount() > 0;
@@ -146,12 +245,43 @@ public class DbUtil {
     SqlHelper.createTable(mDb, clazz, tableName);
   }
 
+  /**
+   * 打开数据库，并先写入等待中的数据，保证之后的读写能看到延迟修改的数据
+   */
   private void checkDb() {
+    openDb();
+    flushPendingData();
+  }
+
+  private void openDb() {
     if (mDb == null || !mDb.isOpen()) {
       mDb = mHelper.getReadableDatabase();
     }
   }
 
+  private void flushPendingData() {
+    List<DbEntity> entities;
+    synchronized (mPendingData) {
+      isFlushScheduled = false;
+      if (mPendingData.isEmpty()) {
+        return;
+      }
+      entities = new ArrayList<>(mPendingData.values());
+      mPendingData.clear();
+    }
+    mDb.beginTransaction();
+    try {
+      for (DbEntity entity : entities) {
+        SqlHelper.modifyData(mDb, entity);
+      }
+      mDb.setTransactionSuccessful();
+    } catch (Exception e) {
+      Log.e(TAG, "批量写入数据失败\n" + CommonUtil.getPrintException(e));
+    } finally {
+      mDb.endTransaction();
+    }
+  }
+
   /**
    * 创建表
    */
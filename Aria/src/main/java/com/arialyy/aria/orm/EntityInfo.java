@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.arialyy.aria.orm;
+
+import com.arialyy.aria.util.CommonUtil;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据库实体的表信息，每个实体类只解析一次
+ * 保存表名、需要保存到表中的字段、字段的读取方式和主键，避免每次读写数据时重复反射和查找注解
+ */
+final class EntityInfo {
+  static final int TYPE_UNKNOWN = 0;
+  static final int TYPE_STRING = 1;
+  static final int TYPE_INT = 2;
+  static final int TYPE_FLOAT = 3;
+  static final int TYPE_DOUBLE = 4;
+  static final int TYPE_LONG = 5;
+  static final int TYPE_BOOLEAN = 6;
+  static final int TYPE_DATE = 7;
+  static final int TYPE_BYTES = 8;
+  static final int TYPE_MAP = 9;
+  static final int TYPE_ONE_TO_MANY = 10;
+  static final int TYPE_LIST = 11;
+  static final int TYPE_ONE_TO_ONE = 12;
+
+  private static final Map<Class, EntityInfo> CACHE = new HashMap<>();
+
+  /**
+   * 表名
+   */
+  final String table;
+
+  /**
+   * 需要保存到表中的字段，按声明顺序排列
+   */
+  final List<Column> columns;
+
+  /**
+   * 被{@link Primary}注解的字段名，没有主键时为null
+   */
+  final String primaryName;
+
+  private final Map<String, Column> mColumnMap = new HashMap<>();
+
+  static final class Column {
+    final Field field;
+    final String name;
+    /**
+     * 从表中读取字段的方式，{@link #TYPE_STRING}等
+     */
+    final int type;
+    final boolean isOneToOne;
+    final boolean isPrimary;
+
+    private Column(Field field) {
+      this.field = field;
+      name = field.getName();
+      isOneToOne = SqlHelper.isOneToOne(field);
+      isPrimary = SqlHelper.isPrimary(field);
+      type = getType(field, isOneToOne);
+    }
+  }
+
+  private EntityInfo(Class clazz) {
+    table = CommonUtil.getClassName(clazz);
+    List<Column> columns = new ArrayList<>();
+    String primaryName = null;
+    for (Field field : CommonUtil.getAllFields(clazz)) {
+      if (primaryName == null && SqlHelper.isPrimary(field)) {
+        primaryName = field.getName();
+      }
+      field.setAccessible(true);
+      if (SqlHelper.ignoreField(field)) {
+        continue;
+      }
+      Column column = new Column(field);
+      columns.add(column);
+      mColumnMap.put(column.name, column);
+    }
+    this.columns = Collections.unmodifiableList(columns);
+    this.primaryName = primaryName;
+  }
+
+  /**
+   * 获取实体类的表信息
+   */
+  static EntityInfo get(Class clazz) {
+    synchronized (CACHE) {
+      EntityInfo info = CACHE.get(clazz);
+      if (info == null) {
+        info = new EntityInfo(clazz);
+        CACHE.put(clazz, info);
+      }
+      return info;
+    }
+  }
+
+  /**
+   * 根据字段名获取列，字段不需要保存到表中时返回null
+   */
+  Column getColumn(String name) {
+    return mColumnMap.get(name);
+  }
+
+  /**
+   * 获取字段的读取方式，判断顺序和字段的实际读取顺序一致
+   */
+  private static int getType(Field field, boolean isOneToOne) {
+    Class<?> type = field.getType();
+    if (type == String.class) {
+      return TYPE_STRING;
+    } else if (type == int.class || type == Integer.class) {
+      return TYPE_INT;
+    } else if (type == float.class || type == Float.class) {
+      return TYPE_FLOAT;
+    } else if (type == double.class || type == Double.class) {
+      return TYPE_DOUBLE;
+    } else if (type == long.class || type == Long.class) {
+      return TYPE_LONG;
+    } else if (type == boolean.class || type == Boolean.class) {
+      return TYPE_BOOLEAN;
+    } else if (type == java.util.Date.class || type == java.sql.Date.class) {
+      return TYPE_DATE;
+    } else if (type == byte[].class) {
+      return TYPE_BYTES;
+    } else if (type == Map.class) {
+      return TYPE_MAP;
+    } else if (type == List.class) {
+      return SqlHelper.isOneToMany(field) ? TYPE_ONE_TO_MANY : TYPE_LIST;
+    } else if (isOneToOne) {
+      return TYPE_ONE_TO_ONE;
+    }
+    return TYPE_UNKNOWN;
+  }
+}
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.util.Log;
@@ -28,11 +29,13 @@ import com.arialyy.aria.util.CheckUtil;
 import com.arialyy.aria.util.CommonUtil;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,7 +54,15 @@ final class SqlHelper extends SQLiteOpenHelper {
   private static final int FIND_ALL_DATA = 5;
   private static final int DEL_DATA = 6;
 
+  /**
+   * 一条语句最多绑定的参数数量，SQLite默认的上限为999
+   */
+  private static final int MAX_BIND_ARGS = 500;
+
   private static volatile SqlHelper INSTANCE = null;
+  //预编译语句缓存，key为表名和操作类型；数据库重新打开或表结构修改后清空
+  private static final Map<String, SQLiteStatement> STATEMENTS = new HashMap<>();
+  private static SQLiteDatabase sStatementDb;
 
   static SqlHelper init(Context context) {
     if (INSTANCE == null) {
@@ -143,18 +154,7 @@ final class SqlHelper extends SQLiteOpenHelper {
    * 获取实体的字段数
    */
   private int getEntityAttr(Class clazz) {
-    int count = 1;
-    List<Field> fields = CommonUtil.getAllFields(clazz);
-    if (fields != null && fields.size() > 0) {
-      for (Field field : fields) {
-        field.setAccessible(true);
-        if (ignoreField(field)) {
-          continue;
-        }
-        count++;
-      }
-    }
-    return count;
+    return EntityInfo.get(clazz).columns.size() + 1;
   }
 
   /**
@@ -182,14 +182,8 @@ final class SqlHelper extends SQLiteOpenHelper {
     CheckUtil.checkSqlExpression(expression);
     String sql =
         "SELECT rowid, * FROM " + CommonUtil.getClassName(clazz) + " WHERE " + expression[0] + " ";
-    sql = sql.replace("?", "%s");
-    Object[] params = new String[expression.length - 1];
-    for (int i = 0, len = params.length; i < len; i++) {
-      params[i] = "'" + expression[i + 1] + "'";
-    }
-    sql = String.format(sql, params);
     print(FIND_DATA, sql);
-    Cursor cursor = db.rawQuery(sql, null);
+    Cursor cursor = db.rawQuery(sql, getBindArgs(expression));
     List<T> data = cursor.getCount() > 0 ? newInstanceEntity(db, clazz, cursor) : null;
     cursor.close();
     close(db);
@@ -225,14 +219,16 @@ final class SqlHelper extends SQLiteOpenHelper {
     }
     StringBuilder sb = new StringBuilder();
     sb.append("SELECT rowid, * FROM ").append(CommonUtil.getClassName(clazz)).append(" where ");
+    String[] args = new String[values.length];
     int i = 0;
     for (Object where : wheres) {
-      sb.append(where).append("=").append("'").append(values[i]).append("'");
+      sb.append(where).append("=?");
       sb.append(i >= wheres.length - 1 ? "" : " AND ");
+      args[i] = String.valueOf(values[i]);
       i++;
     }
     print(FIND_DATA, sb.toString());
-    Cursor cursor = db.rawQuery(sb.toString(), null);
+    Cursor cursor = db.rawQuery(sb.toString(), args);
     List<T> data = cursor.getCount() > 0 ? newInstanceEntity(db, clazz, cursor) : null;
     cursor.close();
     close(db);
@@ -262,14 +258,25 @@ final class SqlHelper extends SQLiteOpenHelper {
     db = checkDb(db);
     CheckUtil.checkSqlExpression(expression);
     String sql = "DELETE FROM " + CommonUtil.getClassName(clazz) + " WHERE " + expression[0] + " ";
-    sql = sql.replace("?", "%s");
-    Object[] params = new String[expression.length - 1];
-    for (int i = 0, len = params.length; i < len; i++) {
-      params[i] = "'" + expression[i + 1] + "'";
-    }
-    sql = String.format(sql, params);
     SqlHelper.print(DEL_DATA, sql);
-    db.execSQL(sql);
+    db.execSQL(sql, getBindArgs(expression));
+    close(db);
+  }
+
+  /**
+   * 根据rowid删除数据
+   */
+  static synchronized void delData(SQLiteDatabase db, DbEntity dbEntity) {
+    db = checkDb(db);
+    String table = CommonUtil.getClassName(dbEntity);
+    String key = table + "#DELETE";
+    SQLiteStatement statement = getStatement(db, key);
+    if (statement == null) {
+      statement = putStatement(db, key, "DELETE FROM " + table + " WHERE rowid=?");
+    }
+    statement.clearBindings();
+    statement.bindLong(1, dbEntity.rowID);
+    statement.execute();
     close(db);
   }
 
@@ -278,109 +285,138 @@ final class SqlHelper extends SQLiteOpenHelper {
    */
   static synchronized void modifyData(SQLiteDatabase db, DbEntity dbEntity) {
     db = checkDb(db);
-    Class<?> clazz = dbEntity.getClass();
-    List<Field> fields = CommonUtil.getAllFields(clazz);
-    if (fields != null && fields.size() > 0) {
-      StringBuilder sb = new StringBuilder();
-      sb.append("UPDATE ").append(CommonUtil.getClassName(dbEntity)).append(" SET ");
-      int i = 0;
-      for (Field field : fields) {
-        field.setAccessible(true);
-        if (SqlHelper.ignoreField(field)) {
-          continue;
-        }
-        sb.append(i > 0 ? ", " : "");
-        try {
-          String value;
-          sb.append(field.getName()).append("='");
-          Type type = field.getType();
-          if (type == Map.class) {
-            value = map2Str((Map<String, String>) field.get(dbEntity));
-          } else if (type == List.class) {
-            if (isOneToMany(field)) {
-              value = getOneToManyElementParams(field);
-            } else {
-              value = list2Str(dbEntity, field);
-            }
-          } else if (isOneToOne(field)) {
-            value = getOneToOneParams(field);
-          } else {
-            Object obj = field.get(dbEntity);
-            value = obj == null ? "" : obj.toString();
-          }
-
-          sb.append(value == null ? "" : value);
-          sb.append("'");
-        } catch (IllegalAccessException e) {
-          e.printStackTrace();
+    EntityInfo info = EntityInfo.get(dbEntity.getClass());
+    if (info.columns.size() > 0) {
+      String key = info.table + "#UPDATE";
+      SQLiteStatement statement = getStatement(db, key);
+      if (statement == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("UPDATE ").append(info.table).append(" SET ");
+        int i = 0;
+        for (EntityInfo.Column column : info.columns) {
+          sb.append(i > 0 ? ", " : "").append(column.name).append("=?");
+          i++;
         }
-        i++;
+        sb.append(" where rowid=?");
+        statement = putStatement(db, key, sb.toString());
       }
-      sb.append(" where rowid=").append(dbEntity.rowID);
-      print(MODIFY_DATA, sb.toString());
-      db.execSQL(sb.toString());
+      statement.clearBindings();
+      int index = 1;
+      for (EntityInfo.Column column : info.columns) {
+        String value = getColumnValue(dbEntity, column);
+        statement.bindString(index++, value == null ? "" : value);
+      }
+      statement.bindLong(index, dbEntity.rowID);
+      print(MODIFY_DATA, statement.toString());
+      statement.execute();
     }
     close(db);
   }
 
   /**
-   * 插入数据
+   * 插入数据，插入后更新实体的rowid
    */
   static synchronized void insertData(SQLiteDatabase db, DbEntity dbEntity) {
     db = checkDb(db);
-    Class<?> clazz = dbEntity.getClass();
-    List<Field> fields = CommonUtil.getAllFields(clazz);
-    if (fields != null && fields.size() > 0) {
-      StringBuilder sb = new StringBuilder();
-      sb.append("INSERT INTO ").append(CommonUtil.getClassName(dbEntity)).append("(");
-      int i = 0;
-      for (Field field : fields) {
-        field.setAccessible(true);
-        if (ignoreField(field)) {
-          continue;
-        }
-        sb.append(i > 0 ? ", " : "");
-        //sb.append(getFieldName(field.getType(), field));
-        sb.append(field.getName());
-        i++;
-      }
-      sb.append(") VALUES (");
-      i = 0;
-      try {
-        for (Field field : fields) {
-          field.setAccessible(true);
-          if (ignoreField(field)) {
-            continue;
-          }
-          sb.append(i > 0 ? ", " : "");
-          sb.append("'");
-          Type type = field.getType();
-          if (type == Map.class) {
-            sb.append(map2Str((Map<String, String>) field.get(dbEntity)));
-          } else if (type == List.class) {
-            if (isOneToMany(field)) {
-              sb.append(getOneToManyElementParams(field));
-            } else {
-              sb.append(list2Str(dbEntity, field));
-            }
-          } else if (isOneToOne(field)) {
-            sb.append(getOneToOneParams(field));
-          } else {
-            sb.append(field.get(dbEntity));
-          }
-          sb.append("'");
+    EntityInfo info = EntityInfo.get(dbEntity.getClass());
+    if (info.columns.size() > 0) {
+      String key = info.table + "#INSERT";
+      SQLiteStatement statement = getStatement(db, key);
+      if (statement == null) {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        sb.append("INSERT INTO ").append(info.table).append("(");
+        int i = 0;
+        for (EntityInfo.Column column : info.columns) {
+          sb.append(i > 0 ? ", " : "").append(column.name);
+          values.append(i > 0 ? ", " : "").append("?");
           i++;
         }
-      } catch (IllegalAccessException e) {
-        e.printStackTrace();
+        sb.append(") VALUES (").append(values).append(")");
+        statement = putStatement(db, key, sb.toString());
+      }
+      statement.clearBindings();
+      int index = 1;
+      for (EntityInfo.Column column : info.columns) {
+        statement.bindString(index++, String.valueOf(getColumnValue(dbEntity, column)));
+      }
+      print(INSERT_DATA, statement.toString());
+      long rowId = statement.executeInsert();
+      if (rowId != -1) {
+        dbEntity.rowID = (int) rowId;
       }
-      sb.append(")");
-      print(INSERT_DATA, sb.toString());
-      db.execSQL(sb.toString());
     }
     close(db);
   }
 
+  /**
+   * 获取字段保存到表中的值
+   *
+   * @return 字段为null时返回null
+   */
+  private static String getColumnValue(DbEntity dbEntity, EntityInfo.Column column) {
+    Field field = column.field;
+    try {
+      switch (column.type) {
+        case EntityInfo.TYPE_MAP:
+          return map2Str((Map<String, String>) field.get(dbEntity));
+        case EntityInfo.TYPE_ONE_TO_MANY:
+          return getOneToManyElementParams(field);
+        case EntityInfo.TYPE_LIST:
+          return list2Str(dbEntity, field);
+        default:
+          if (column.isOneToOne) {
+            return getOneToOneParams(field);
+          }
+      }
+      Object obj = field.get(dbEntity);
+      return obj == null ? null : obj.toString();
+    } catch (IllegalAccessException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
+  /**
+   * 将条件语句的参数转换为绑定参数
+   *
+   * @param expression 第一个元素为条件语句，之后为参数
+   */
+  private static String[] getBindArgs(String... expression) {
+    String[] args = new String[expression.length - 1];
+    for (int i = 0, len = args.length; i < len; i++) {
+      args[i] = String.valueOf(expression[i + 1]);
+    }
+    return args;
+  }
+
+  /**
+   * 获取缓存的预编译语句，数据库已经重新打开时清空缓存
+   */
+  private static SQLiteStatement getStatement(SQLiteDatabase db, String key) {
+    if (sStatementDb != db) {
+      clearStatements();
+      sStatementDb = db;
+    }
+    return STATEMENTS.get(key);
+  }
+
+  private static SQLiteStatement putStatement(SQLiteDatabase db, String key, String sql) {
+    SQLiteStatement statement = db.compileStatement(sql);
+    STATEMENTS.put(key, statement);
+    return statement;
+  }
+
+  /**
+   * 清空预编译语句缓存，表结构修改后调用
+   */
+  private static synchronized void clearStatements() {
+    for (SQLiteStatement statement : STATEMENTS.values()) {
+      statement.close();
+    }
+    STATEMENTS.clear();
+  }
+
   /**
    * 获取一对一参数
    */
@@ -466,19 +502,6 @@ final class SqlHelper extends SQLiteOpenHelper {
     return null;
   }
 
-  /**
-   * 查找class的主键字段
-   *
-   * @return 返回主键字段名
-   */
-  private static String getPrimaryName(Class<? extends DbEntity> clazz) {
-    List<Field> fields = CommonUtil.getAllFields(clazz);
-    for (Field field : fields) {
-      if (isPrimary(field)) return field.getName();
-    }
-    return null;
-  }
-
   /**
    * 查找表是否存在
    *
@@ -518,23 +541,20 @@ final class SqlHelper extends SQLiteOpenHelper {
    */
   static synchronized void createTable(SQLiteDatabase db, Class clazz, String tableName) {
     db = checkDb(db);
-    List<Field> fields = CommonUtil.getAllFields(clazz);
-    if (fields != null && fields.size() > 0) {
+    clearStatements();
+    EntityInfo info = EntityInfo.get(clazz);
+    if (info.columns.size() > 0) {
       StringBuilder sb = new StringBuilder();
       sb.append("create table ")
-          .append(TextUtils.isEmpty(tableName) ? CommonUtil.getClassName(clazz) : tableName)
+          .append(TextUtils.isEmpty(tableName) ? info.table : tableName)
           .append("(");
-      for (Field field : fields) {
-        field.setAccessible(true);
-        if (ignoreField(field)) {
-          continue;
-        }
-        Class<?> type = field.getType();
-        sb.append(field.getName());
+      for (EntityInfo.Column column : info.columns) {
+        Class<?> type = column.field.getType();
+        sb.append(column.name);
         if (type == String.class
             || type == Map.class
             || type == List.class
-            || isOneToOne(field)
+            || column.isOneToOne
             || type.isEnum()) {
           sb.append(" varchar");
         } else if (type == int.class || type == Integer.class) {
@@ -554,7 +574,7 @@ final class SqlHelper extends SQLiteOpenHelper {
         } else {
           continue;
         }
-        if (isPrimary(field)) {
+        if (column.isPrimary) {
           //sb.append(" PRIMARY KEY");
           sb.append(" NOT NULL");
         }
@@ -606,75 +626,89 @@ final class SqlHelper extends SQLiteOpenHelper {
    */
   private static synchronized <T extends DbEntity> List<T> newInstanceEntity(SQLiteDatabase db,
       Class<T> clazz, Cursor cursor) {
-    List<Field> fields = CommonUtil.getAllFields(clazz);
+    EntityInfo info = EntityInfo.get(clazz);
+    List<EntityInfo.Column> columns = info.columns;
     List<T> entitys = new ArrayList<>();
-    if (fields != null && fields.size() > 0) {
+    if (columns.size() > 0) {
+      //列的位置在同一个游标中不变，只查找一次
+      int[] indexes = new int[columns.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = cursor.getColumnIndex(columns.get(i).name);
+      }
+      int primaryIndex = info.primaryName == null ? -1 : cursor.getColumnIndex(info.primaryName);
+      int rowIdIndex = cursor.getColumnIndex("rowid");
+      //关联数据在游标遍历完成后按主键批量查询，key为字段位置和关联参数
+      Map<String, Relation> relations = new LinkedHashMap<>();
       try {
         while (cursor.moveToNext()) {
           T entity = clazz.newInstance();
-          for (Field field : fields) {
-            field.setAccessible(true);
-            if (ignoreField(field)) {
-              continue;
-            }
-            Class<?> type = field.getType();
-            int column = cursor.getColumnIndex(field.getName());
+          for (int i = 0; i < indexes.length; i++) {
+            int column = indexes[i];
             if (column == -1) continue;
-            if (type == String.class) {
-              field.set(entity, cursor.getString(column));
-            } else if (type == int.class || type == Integer.class) {
-              field.setInt(entity, cursor.getInt(column));
-            } else if (type == float.class || type == Float.class) {
-              field.setFloat(entity, cursor.getFloat(column));
-            } else if (type == double.class || type == Double.class) {
-              field.setDouble(entity, cursor.getDouble(column));
-            } else if (type == long.class || type == Long.class) {
-              field.setLong(entity, cursor.getLong(column));
-            } else if (type == boolean.class || type == Boolean.class) {
-              field.setBoolean(entity, !cursor.getString(column).equalsIgnoreCase("false"));
-            } else if (type == java.util.Date.class || type == java.sql.Date.class) {
-              field.set(entity, new Date(cursor.getString(column)));
-            } else if (type == byte[].class) {
-              field.set(entity, cursor.getBlob(column));
-            } else if (type == Map.class) {
-              field.set(entity, str2Map(cursor.getString(column)));
-            } else if (type == List.class) {
-              String value = cursor.getString(column);
-              if (isOneToMany(field)) {
-                //主键字段
-                String primaryKey = getPrimaryName(clazz);
-                if (TextUtils.isEmpty(primaryKey)) {
+            Field field = columns.get(i).field;
+            switch (columns.get(i).type) {
+              case EntityInfo.TYPE_STRING:
+                field.set(entity, cursor.getString(column));
+                break;
+              case EntityInfo.TYPE_INT:
+                field.setInt(entity, cursor.getInt(column));
+                break;
+              case EntityInfo.TYPE_FLOAT:
+                field.setFloat(entity, cursor.getFloat(column));
+                break;
+              case EntityInfo.TYPE_DOUBLE:
+                field.setDouble(entity, cursor.getDouble(column));
+                break;
+              case EntityInfo.TYPE_LONG:
+                field.setLong(entity, cursor.getLong(column));
+                break;
+              case EntityInfo.TYPE_BOOLEAN:
+                field.setBoolean(entity, !cursor.getString(column).equalsIgnoreCase("false"));
+                break;
+              case EntityInfo.TYPE_DATE:
+                field.set(entity, new Date(cursor.getString(column)));
+                break;
+              case EntityInfo.TYPE_BYTES:
+                field.set(entity, cursor.getBlob(column));
+                break;
+              case EntityInfo.TYPE_MAP:
+                field.set(entity, str2Map(cursor.getString(column)));
+                break;
+              case EntityInfo.TYPE_LIST:
+                field.set(entity, str2List(cursor.getString(column), field));
+                break;
+              case EntityInfo.TYPE_ONE_TO_MANY: {
+                if (TextUtils.isEmpty(info.primaryName)) {
                   throw new IllegalArgumentException("List中的元素对象必须需要@Primary注解的字段");
                 }
                 //list字段保存的数据
-                int kc = cursor.getColumnIndex(primaryKey);
-                String primaryData = cursor.getString(kc);
+                String primaryData = cursor.getString(primaryIndex);
                 if (TextUtils.isEmpty(primaryData)) continue;
-                List<T> list = findForeignData(db, primaryData, value);
-                if (list == null) continue;
-                field.set(entity, findForeignData(db, primaryData, value));
-              } else {
-                field.set(entity, str2List(value, field));
+                addRelation(relations, i, columns.get(i), cursor.getString(column), entity,
+                    primaryData);
+                break;
               }
-            } else if (isOneToOne(field)) {
-              String primaryKey = getPrimaryName(clazz);
-              if (TextUtils.isEmpty(primaryKey)) {
-                throw new IllegalArgumentException("@OneToOne的注解对象必须需要@Primary注解的字段");
-              }
-              int kc = cursor.getColumnIndex(primaryKey);
-              String params = cursor.getString(column);
-              String primaryData = cursor.getString(kc);
-              if (TextUtils.isEmpty(primaryData) || primaryData.equalsIgnoreCase("null")) continue;
-              List<T> list = findForeignData(db, primaryData, params);
-              if (list != null && list.size() > 0) {
-                field.set(entity, list.get(0));
+              case EntityInfo.TYPE_ONE_TO_ONE: {
+                if (TextUtils.isEmpty(info.primaryName)) {
+                  throw new IllegalArgumentException("@OneToOne的注解对象必须需要@Primary注解的字段");
+                }
+                String params = cursor.getString(column);
+                String primaryData = cursor.getString(primaryIndex);
+                if (TextUtils.isEmpty(primaryData) || primaryData.equalsIgnoreCase("null")) {
+                  continue;
+                }
+                addRelation(relations, i, columns.get(i), params, entity, primaryData);
+                break;
               }
             }
           }
-          entity.rowID = cursor.getInt(cursor.getColumnIndex("rowid"));
+          entity.rowID = cursor.getInt(rowIdIndex);
           entitys.add(entity);
         }
         cursor.close();
+        for (Relation relation : relations.values()) {
+          loadRelation(db, relation);
+        }
       } catch (InstantiationException e) {
         e.printStackTrace();
       } catch (IllegalAccessException e) {
@@ -685,15 +719,109 @@ final class SqlHelper extends SQLiteOpenHelper {
   }
 
   /**
-   * 查找一对多、一对一的关联数据
+   * 等待批量查询的关联数据，同一个字段、同一个关联参数的数据一起查询
+   */
+  private static final class Relation {
+    final EntityInfo.Column column;
+    /**
+     * 关联数据的类名 $$ 关联字段名
+     */
+    final String childParams;
+    final List<DbEntity> entities = new ArrayList<>();
+    final List<String> primaries = new ArrayList<>();
+
+    Relation(EntityInfo.Column column, String childParams) {
+      this.column = column;
+      this.childParams = childParams;
+    }
+  }
+
+  private static void addRelation(Map<String, Relation> relations, int index,
+      EntityInfo.Column column, String childParams, DbEntity entity, String primary) {
+    String key = index + "_" + childParams;
+    Relation relation = relations.get(key);
+    if (relation == null) {
+      relation = new Relation(column, childParams);
+      relations.put(key, relation);
+    }
+    relation.entities.add(entity);
+    relation.primaries.add(primary);
+  }
+
+  /**
+   * 查询关联数据并设置到对应的字段，一对多的字段设置为关联数据列表，一对一的字段设置为第一条关联数据
+   */
+  private static void loadRelation(SQLiteDatabase db, Relation relation)
+      throws IllegalAccessException {
+    Map<String, List<DbEntity>> children =
+        findForeignData(db, relation.childParams, new LinkedHashSet<>(relation.primaries));
+    Field field = relation.column.field;
+    boolean isOneToMany = relation.column.type == EntityInfo.TYPE_ONE_TO_MANY;
+    for (int i = 0, size = relation.entities.size(); i < size; i++) {
+      List<DbEntity> list = children.get(relation.primaries.get(i));
+      if (list == null || list.isEmpty()) {
+        continue;
+      }
+      field.set(relation.entities.get(i), isOneToMany ? new ArrayList<>(list) : list.get(0));
+    }
+  }
+
+  /**
+   * 查找一对多、一对一的关联数据，主键较多时分批使用IN查询
    *
-   * @param primary 当前表的主键
    * @param childParams 当前表关联数据的类名 $$ 主键名
+   * @param primaries 当前表的主键
+   * @return key为关联字段的值
    */
-  private static <T extends DbEntity> List<T> findForeignData(SQLiteDatabase db, String primary,
-      String childParams) {
+  private static Map<String, List<DbEntity>> findForeignData(SQLiteDatabase db,
+      String childParams, Collection<String> primaries) {
+    Map<String, List<DbEntity>> result = new HashMap<>();
     String[] params = childParams.split("\\$\\$");
-    return findData(db, params[0], params[1] + "=?", primary);
+    Class<DbEntity> clazz;
+    try {
+      clazz = (Class<DbEntity>) Class.forName(params[0]);
+    } catch (ClassNotFoundException e) {
+      e.printStackTrace();
+      return result;
+    }
+    EntityInfo info = EntityInfo.get(clazz);
+    EntityInfo.Column keyColumn = info.getColumn(params[1]);
+    if (keyColumn == null) {
+      Log.e(TAG, "关联字段【" + params[1] + "】不存在");
+      return result;
+    }
+    List<String> keys = new ArrayList<>(primaries);
+    for (int start = 0, size = keys.size(); start < size; start += MAX_BIND_ARGS) {
+      List<String> part = keys.subList(start, Math.min(size, start + MAX_BIND_ARGS));
+      StringBuilder sb = new StringBuilder();
+      sb.append("SELECT rowid, * FROM ").append(info.table).append(" WHERE ")
+          .append(keyColumn.name).append(" IN (");
+      for (int i = 0; i < part.size(); i++) {
+        sb.append(i > 0 ? ",?" : "?");
+      }
+      sb.append(")");
+      print(FIND_DATA, sb.toString());
+      Cursor cursor = db.rawQuery(sb.toString(), part.toArray(new String[part.size()]));
+      List<DbEntity> data = cursor.getCount() > 0 ? newInstanceEntity(db, clazz, cursor) : null;
+      cursor.close();
+      if (data == null) {
+        continue;
+      }
+      try {
+        for (DbEntity child : data) {
+          String key = String.valueOf(keyColumn.field.get(child));
+          List<DbEntity> list = result.get(key);
+          if (list == null) {
+            list = new ArrayList<>();
+            result.put(key, list);
+          }
+          list.add(child);
+        }
+      } catch (IllegalAccessException e) {
+        e.printStackTrace();
+      }
+    }
+    return result;
   }
 
   /**
@@ -40,6 +40,8 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -185,10 +187,29 @@ public class CommonUtil {
     if (config.exists()) {
       config.delete();
     }
+    File journal = new File(
+        AriaManager.APP.getFilesDir().getPath() + AriaManager.DOWNLOAD_TEMP_DIR + dEntity.getFileName()
+            + ".journal");
+    if (journal.exists()) {
+      journal.delete();
+    }
     dEntity.deleteData();
     tEntity.deleteData();
   }
 
+  /**
+   * 获取下载地址的主机名
+   *
+   * @return 地址错误时返回null
+   */
+  public static String getHost(String url) {
+    try {
+      return new URL(url).getHost();
+    } catch (MalformedURLException e) {
+      return null;
+    }
+  }
+
   /**
    * 获取CPU核心数
    */
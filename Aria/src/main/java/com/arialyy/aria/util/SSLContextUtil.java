@@ -29,10 +29,14 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
@@ -46,15 +50,72 @@ public class SSLContextUtil {
   public static String CA_PATH, CA_ALIAS;
 
   /**
-   * 颁发服务器证书的 CA 未知
+   * TLS会话缓存数量和有效时间（秒）
+   */
+  private static final int SESSION_CACHE_SIZE = 64;
+  private static final int SESSION_TIMEOUT = 60 * 60;
+
+  /**
+   * SSLContext缓存，key为CA证书别名和路径
+   */
+  private static final Map<String, SSLContext> SSL_CONTEXTS = new HashMap<>();
+  private static final Map<String, SSLSocketFactory> SOCKET_FACTORIES = new HashMap<>();
+  private static SSLContext DEFAULT_CONTEXT;
+
+  /**
+   * 获取SSLSocketFactory，同一个CA证书的连接共用一个SSLSocketFactory，后续的连接可以复用TLS会话，不需要完整的握手。
+   * 如果CA证书为空或加载失败，使用{@link #getDefaultSLLContext()}
+   *
+   * @param caAlias CA证书别名
+   * @param caPath 保存在assets目录下的CA证书完整路径
+   */
+  public static SSLSocketFactory getSocketFactory(String caAlias, String caPath) {
+    String key = caAlias + ":" + caPath;
+    synchronized (SOCKET_FACTORIES) {
+      SSLSocketFactory factory = SOCKET_FACTORIES.get(key);
+      if (factory == null) {
+        SSLContext context = getSSLContext(caAlias, caPath);
+        if (context == null) {
+          context = getDefaultSLLContext();
+        }
+        if (context == null) {
+          return null;
+        }
+        factory = context.getSocketFactory();
+        SOCKET_FACTORIES.put(key, factory);
+      }
+      return factory;
+    }
+  }
+
+  /**
+   * 颁发服务器证书的 CA 未知，创建的SSLContext会被缓存
    *
    * @param caAlias CA证书别名
    * @param caPath 保存在assets目录下的CA证书完整路径
    */
   public static SSLContext getSSLContext(String caAlias, String caPath) {
+    //JVM单元测试中TextUtils.isEmpty()总是返回false，需要单独判断null
+    if (caAlias == null || caPath == null) {
+      return null;
+    }
     if (TextUtils.isEmpty(caAlias) || TextUtils.isEmpty(caPath)) {
       return null;
     }
+    String key = caAlias + ":" + caPath;
+    synchronized (SSL_CONTEXTS) {
+      SSLContext context = SSL_CONTEXTS.get(key);
+      if (context == null) {
+        context = createSSLContext(caAlias, caPath);
+        if (context != null) {
+          SSL_CONTEXTS.put(key, context);
+        }
+      }
+      return context;
+    }
+  }
+
+  private static SSLContext createSSLContext(String caAlias, String caPath) {
     // Load CAs from an InputStream
     // (could be from a resource or ByteArrayInputStream or ...)
     CertificateFactory cf = null;
@@ -62,7 +123,11 @@ public class SSLContextUtil {
       cf = CertificateFactory.getInstance("X.509");
       InputStream caInput = AriaManager.APP.getAssets().open(caPath);
       Certificate ca;
-      ca = cf.generateCertificate(caInput);
+      try {
+        ca = cf.generateCertificate(caInput);
+      } finally {
+        caInput.close();
+      }
       System.out.println("ca=" + ((X509Certificate) ca).getSubjectDN());
 
       // Create a KeyStore containing our trusted CAs
@@ -82,6 +147,7 @@ public class SSLContextUtil {
       // Create an SSLContext that uses our TrustManager
       SSLContext context = SSLContext.getInstance("TLS");
       context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), new SecureRandom());
+      enableSessionCache(context);
       return context;
     } catch (CertificateException | NoSuchAlgorithmException | IOException | KeyStoreException | KeyManagementException | UnrecoverableKeyException e) {
       e.printStackTrace();
@@ -90,19 +156,35 @@ public class SSLContextUtil {
   }
 
   /**
-   * 服务器证书不是由 CA 签署的，而是自签署时，获取默认的SSL
+   * 服务器证书不是由 CA 签署的，而是自签署时，获取默认的SSL，创建的SSLContext会被缓存
    */
-  public static SSLContext getDefaultSLLContext() {
+  public static synchronized SSLContext getDefaultSLLContext() {
+    if (DEFAULT_CONTEXT != null) {
+      return DEFAULT_CONTEXT;
+    }
     SSLContext sslContext = null;
     try {
       sslContext = SSLContext.getInstance("TLS");
       sslContext.init(null, new TrustManager[] { trustManagers }, new SecureRandom());
+      enableSessionCache(sslContext);
+      DEFAULT_CONTEXT = sslContext;
     } catch (Exception e) {
       e.printStackTrace();
     }
     return sslContext;
   }
 
+  /**
+   * 开启客户端TLS会话缓存，使同一个host的后续连接可以恢复会话
+   */
+  private static void enableSessionCache(SSLContext context) {
+    SSLSessionContext sessionContext = context.getClientSessionContext();
+    if (sessionContext != null) {
+      sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+      sessionContext.setSessionTimeout(SESSION_TIMEOUT);
+    }
+  }
+
   /**
    * 创建自己的 TrustManager，这次直接信任服务器证书。这种方法具有前面所述的将应用与证书直接关联的所有弊端，但可以安全地操作。
    */
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 进度定时器的回调间隔、取消注册和异常处理测试，回调次数允许有一定的误差
+ */
+public class ProgressTickerTest {
+  private ProgressTicker mTicker;
+
+  @Before public void setUp() {
+    mTicker = new ProgressTicker();
+  }
+
+  @Test public void callsImmediatelyOnTheTickerThread() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<String> threadName = new AtomicReference<>();
+    ProgressTicker.Ticket ticket = mTicker.register(new Runnable() {
+      @Override public void run() {
+        threadName.set(Thread.currentThread().getName());
+        latch.countDown();
+      }
+    }, ProgressTicker.DEFAULT_INTERVAL);
+    assertTrue(latch.await(ProgressTicker.MIN_INTERVAL * 5, TimeUnit.MILLISECONDS));
+    assertEquals("Aria-ticker", threadName.get());
+    ticket.cancel();
+  }
+
+  @Test public void respectsEachInterval() throws InterruptedException {
+    AtomicInteger fastNum = new AtomicInteger();
+    AtomicInteger slowNum = new AtomicInteger();
+    ProgressTicker.Ticket fast = mTicker.register(counter(fastNum), 100);
+    ProgressTicker.Ticket slow = mTicker.register(counter(slowNum), 500);
+    Thread.sleep(1050);
+    fast.cancel();
+    slow.cancel();
+    //100ms间隔最多11次，检查时间的误差可能跳过一次检查；500ms间隔约3次
+    assertTrue("fast: " + fastNum.get(), fastNum.get() >= 5 && fastNum.get() <= 12);
+    assertTrue("slow: " + slowNum.get(), slowNum.get() >= 2 && slowNum.get() <= 3);
+  }
+
+  @Test public void intervalIsClampedToMinimum() {
+    ProgressTicker.Ticket ticket = mTicker.register(counter(new AtomicInteger()), 10);
+    assertEquals(ProgressTicker.MIN_INTERVAL, ticket.getInterval());
+    ticket.setInterval(1);
+    assertEquals(ProgressTicker.MIN_INTERVAL, ticket.getInterval());
+    ticket.cancel();
+  }
+
+  @Test public void cancelStopsCallbacks() throws InterruptedException {
+    AtomicInteger num = new AtomicInteger();
+    ProgressTicker.Ticket ticket = mTicker.register(counter(num), ProgressTicker.MIN_INTERVAL);
+    Thread.sleep(250);
+    ticket.cancel();
+    assertEquals(0, mTicker.getTicketNum());
+    Thread.sleep(ProgressTicker.MIN_INTERVAL);
+    int stopNum = num.get();
+    Thread.sleep(ProgressTicker.MIN_INTERVAL * 3);
+    assertEquals(stopNum, num.get());
+  }
+
+  @Test public void cancelInsideCallback() throws InterruptedException {
+    final AtomicInteger num = new AtomicInteger();
+    final AtomicReference<ProgressTicker.Ticket> ticket = new AtomicReference<>();
+    final CountDownLatch latch = new CountDownLatch(1);
+    ticket.set(mTicker.register(new Runnable() {
+      @Override public void run() {
+        num.incrementAndGet();
+        while (ticket.get() == null) {
+          Thread.yield();
+        }
+        ticket.get().cancel();
+        latch.countDown();
+      }
+    }, ProgressTicker.MIN_INTERVAL));
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    Thread.sleep(ProgressTicker.MIN_INTERVAL * 3);
+    assertEquals(1, num.get());
+    assertEquals(0, mTicker.getTicketNum());
+  }
+
+  @Test public void exceptionDoesNotStopOtherCallbacks() throws InterruptedException {
+    AtomicInteger num = new AtomicInteger();
+    ProgressTicker.Ticket bad = mTicker.register(new Runnable() {
+      @Override public void run() {
+        throw new IllegalStateException("test");
+      }
+    }, ProgressTicker.MIN_INTERVAL);
+    ProgressTicker.Ticket good = mTicker.register(counter(num), ProgressTicker.MIN_INTERVAL);
+    Thread.sleep(450);
+    bad.cancel();
+    good.cancel();
+    assertTrue("num: " + num.get(), num.get() >= 3);
+  }
+
+  @Test public void manyTicketsShareOneThread() throws InterruptedException {
+    int ticketNum = 1000;
+    final CountDownLatch latch = new CountDownLatch(ticketNum);
+    ProgressTicker.Ticket[] tickets = new ProgressTicker.Ticket[ticketNum];
+    for (int i = 0; i < ticketNum; i++) {
+      tickets[i] = mTicker.register(new Runnable() {
+        boolean isCalled = false;
+
+        @Override public void run() {
+          if (!isCalled) {
+            isCalled = true;
+            latch.countDown();
+          }
+        }
+      }, ProgressTicker.DEFAULT_INTERVAL);
+    }
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    for (ProgressTicker.Ticket ticket : tickets) {
+      ticket.cancel();
+    }
+    assertEquals(0, mTicker.getTicketNum());
+  }
+
+  private static Runnable counter(final AtomicInteger num) {
+    return new Runnable() {
+      @Override public void run() {
+        num.incrementAndGet();
+      }
+    };
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 使用本地HTTP/1.1服务器测试连接池的许可、连接创建接口和keep-alive复用
+ */
+public class HttpConnectionPoolTest {
+  private static final byte[] BODY = "0123456789".getBytes();
+
+  private StubServer mServer;
+  private URL mUrl;
+
+  @Before public void setUp() throws IOException {
+    mServer = new StubServer();
+    mServer.start();
+    mUrl = new URL("http://127.0.0.1:" + mServer.getPort() + "/file");
+  }
+
+  @After public void tearDown() throws IOException {
+    mServer.close();
+  }
+
+  @Test public void requestsUseTheFactory() throws IOException {
+    HttpConnectionPool pool = new HttpConnectionPool(2);
+    final AtomicInteger openNum = new AtomicInteger();
+    pool.setConnectionFactory(new HttpConnectionPool.IConnectionFactory() {
+      @Override public HttpURLConnection openConnection(URL url) throws IOException {
+        openNum.incrementAndGet();
+        return (HttpURLConnection) url.openConnection();
+      }
+    }, 3);
+    for (int i = 0; i < 4; i++) {
+      request(pool);
+    }
+    assertEquals(4, openNum.get());
+    assertEquals(3, pool.getMaxRequestsPerHost());
+  }
+
+  @Test public void consumedConnectionsAreReused() throws IOException {
+    HttpConnectionPool pool = new HttpConnectionPool(2);
+    int num = 5;
+    for (int i = 0; i < num; i++) {
+      request(pool);
+    }
+    assertEquals(num, mServer.getRequestNum());
+    assertEquals(1, mServer.getSocketNum());
+    assertEquals(num, pool.getKeepAliveNum());
+  }
+
+  @Test public void waitForPermitTimesOut() throws IOException {
+    HttpConnectionPool pool = new HttpConnectionPool(2);
+    HttpURLConnection c1 = pool.open(mUrl, false, 100);
+    HttpURLConnection c2 = pool.open(mUrl, false, 100);
+    assertEquals(2, pool.getActiveNum(mUrl.getHost()));
+    try {
+      pool.open(mUrl, false, 100);
+      fail("host的许可已用完，打开连接应该超时");
+    } catch (SocketTimeoutException e) {
+      assertEquals(1, pool.getWaitTimeOutNum());
+    }
+    pool.release(c1, false);
+    pool.release(pool.open(mUrl, false, 100), false);
+    pool.release(c2, false);
+    assertEquals(0, pool.getActiveNum(mUrl.getHost()));
+  }
+
+  @Test public void probesDoNotWaitForSegments() throws IOException {
+    HttpConnectionPool pool = new HttpConnectionPool(1);
+    HttpURLConnection segment = pool.open(mUrl, false, 100);
+    long start = System.currentTimeMillis();
+    HttpURLConnection probe = pool.open(mUrl, true, 5000);
+    assertTrue(System.currentTimeMillis() - start < 1000);
+    pool.release(probe, false);
+    pool.release(segment, false);
+  }
+
+  /**
+   * 发送一次请求，读取全部响应内容后释放连接
+   */
+  private void request(HttpConnectionPool pool) throws IOException {
+    HttpURLConnection conn = pool.open(mUrl, false, 1000);
+    boolean isConsumed = false;
+    try {
+      InputStream is = conn.getInputStream();
+      byte[] buffer = new byte[64];
+      int len = 0;
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        len += read;
+      }
+      is.close();
+      assertEquals(BODY.length, len);
+      isConsumed = true;
+    } finally {
+      pool.release(conn, isConsumed);
+    }
+  }
+
+  /**
+   * 支持keep-alive的HTTP/1.1服务器，每个请求返回固定内容，记录接受的socket数和请求数
+   */
+  private static final class StubServer extends Thread {
+    private final ServerSocket mSocket;
+    private final AtomicInteger mSocketNum = new AtomicInteger();
+    private final AtomicInteger mRequestNum = new AtomicInteger();
+
+    StubServer() throws IOException {
+      mSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+      setDaemon(true);
+    }
+
+    int getPort() {
+      return mSocket.getLocalPort();
+    }
+
+    int getSocketNum() {
+      return mSocketNum.get();
+    }
+
+    int getRequestNum() {
+      return mRequestNum.get();
+    }
+
+    void close() throws IOException {
+      mSocket.close();
+    }
+
+    @Override public void run() {
+      while (!mSocket.isClosed()) {
+        try {
+          final Socket socket = mSocket.accept();
+          mSocketNum.incrementAndGet();
+          Thread handler = new Thread() {
+            @Override public void run() {
+              handle(socket);
+            }
+          };
+          handler.setDaemon(true);
+          handler.start();
+        } catch (IOException e) {
+          return;
+        }
+      }
+    }
+
+    private void handle(Socket socket) {
+      try {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+        OutputStream os = socket.getOutputStream();
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (!line.isEmpty()) {
+            continue;
+          }
+          //请求头读取完成
+          mRequestNum.incrementAndGet();
+          String head = "HTTP/1.1 200 OK\r\nContent-Length: " + BODY.length
+              + "\r\nConnection: keep-alive\r\n\r\n";
+          os.write(head.getBytes("ISO-8859-1"));
+          os.write(BODY);
+          os.flush();
+        }
+      } catch (IOException e) {
+        //客户端断开连接
+      } finally {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          //ignore
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 令牌桶限速器的速度测试，耗时允许有一定的误差
+ */
+public class SpeedLimiterTest {
+  private static final int CHUNK = 8 * 1024;
+
+  /**
+   * 100kb/s
+   */
+  private static final double MAX_SPEED = 100;
+  private static final int TOTAL = 50 * 1024;
+
+  @Test public void unlimitedNeverWaits() throws InterruptedException {
+    SpeedLimiter limiter = new SpeedLimiter();
+    long time = read(limiter, 10 * 1024 * 1024);
+    assertTrue("耗时" + time + "ms", time < 100);
+  }
+
+  @Test public void limitsSpeed() throws InterruptedException {
+    SpeedLimiter limiter = new SpeedLimiter(MAX_SPEED);
+    long time = read(limiter, TOTAL);
+    //50kb在100kb/s的速度下需要500ms
+    assertTrue("耗时" + time + "ms", time >= 400 && time < 1500);
+  }
+
+  @Test public void threadsShareTheLimit() throws InterruptedException {
+    final SpeedLimiter limiter = new SpeedLimiter(MAX_SPEED);
+    Thread[] threads = new Thread[4];
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override public void run() {
+          try {
+            read(limiter, TOTAL / 4);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long time = System.currentTimeMillis() - startTime;
+    assertTrue("耗时" + time + "ms", time >= 400 && time < 1500);
+  }
+
+  @Test public void zeroSpeedRemovesTheLimit() throws InterruptedException {
+    SpeedLimiter limiter = new SpeedLimiter(MAX_SPEED);
+    limiter.setMaxSpeed(0);
+    long time = read(limiter, 10 * 1024 * 1024);
+    assertTrue("耗时" + time + "ms", time < 100);
+  }
+
+  /**
+   * 按下载线程的方式分段读取
+   *
+   * @return 耗时，单位：毫秒
+   */
+  private static long read(SpeedLimiter limiter, int total) throws InterruptedException {
+    long startTime = System.currentTimeMillis();
+    int read = 0;
+    while (read < total) {
+      int len = Math.min(CHUNK, total - read);
+      limiter.acquire(len);
+      read += len;
+    }
+    return System.currentTimeMillis() - startTime;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.download.downloader;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 下载进度计数的并发测试：N个任务，每个任务M条线程同时更新{@link StateConstance#CURRENT_LOCATION}，
+ * 不加锁时每个任务的进度也不能丢失
+ */
+public class StateConstanceTest {
+  private static final int TASK_NUM = 4;
+  private static final int THREAD_NUM = 4;
+  private static final int READ_NUM = 20000;
+
+  /**
+   * 每次读取的字节数
+   */
+  private static final int LEN = 8192;
+
+  @Test public void concurrentUpdatesAreNotLost() throws InterruptedException {
+    final StateConstance[] constances = new StateConstance[TASK_NUM];
+    for (int i = 0; i < TASK_NUM; i++) {
+      constances[i] = new StateConstance();
+    }
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(TASK_NUM * THREAD_NUM);
+    for (int i = 0; i < TASK_NUM; i++) {
+      final StateConstance constance = constances[i];
+      for (int j = 0; j < THREAD_NUM; j++) {
+        new Thread(new Runnable() {
+          @Override public void run() {
+            try {
+              start.await();
+              for (int k = 0; k < READ_NUM; k++) {
+                constance.CURRENT_LOCATION.addAndGet(LEN);
+              }
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            } finally {
+              done.countDown();
+            }
+          }
+        }).start();
+      }
+    }
+    start.countDown();
+    done.await();
+    long expect = (long) THREAD_NUM * READ_NUM * LEN;
+    for (int i = 0; i < TASK_NUM; i++) {
+      assertEquals(expect, constances[i].CURRENT_LOCATION.get());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.queue.pool;
+
+import android.util.Log;
+import com.arialyy.aria.core.inf.AbsTask;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 缓存池在100000个等待任务时的添加、查找、删除、移到队首、修改优先级和取出耗时，结果输出到日志；
+ * 每种操作都不能随任务数线性增长，否则总耗时会达到分钟级
+ */
+public class BaseCachePoolBenchmark {
+  private static final String TAG = "BaseCachePoolBenchmark";
+  private static final int TASK_NUM = 100000;
+
+  @Test public void hundredThousandTasks() {
+    BaseCachePool<TestTask> pool = new BaseCachePool<>();
+    List<TestTask> tasks = new ArrayList<>(TASK_NUM);
+    for (int i = 0; i < TASK_NUM; i++) {
+      tasks.add(new TestTask("task_" + i, i % 2 == 0 ? AbsTask.PRIORITY_NORMAL
+          : AbsTask.PRIORITY_BACKGROUND));
+    }
+
+    long startTime = System.nanoTime();
+    for (TestTask task : tasks) {
+      assertTrue(pool.putTask(task));
+    }
+    long putTime = System.nanoTime() - startTime;
+    assertEquals(TASK_NUM, pool.size());
+
+    startTime = System.nanoTime();
+    for (TestTask task : tasks) {
+      assertSame(task, pool.getTask(task.getKey()));
+    }
+    long getTime = System.nanoTime() - startTime;
+
+    //随机删除一半的任务
+    List<TestTask> removed = new ArrayList<>(tasks.subList(0, TASK_NUM / 2));
+    Collections.shuffle(removed, new Random(1));
+    startTime = System.nanoTime();
+    for (TestTask task : removed) {
+      assertTrue(pool.removeTask(task));
+    }
+    long removeTime = System.nanoTime() - startTime;
+    assertEquals(TASK_NUM - removed.size(), pool.size());
+    List<TestTask> rest = tasks.subList(TASK_NUM / 2, TASK_NUM);
+
+    //剩下的任务逐个移到队首
+    startTime = System.nanoTime();
+    for (TestTask task : rest) {
+      assertTrue(pool.putTaskToFirst(task));
+    }
+    long firstTime = System.nanoTime() - startTime;
+    assertEquals(rest.size(), pool.size());
+
+    //剩下的任务按顺序提升为高优先级
+    startTime = System.nanoTime();
+    for (TestTask task : rest) {
+      task.setPriority(AbsTask.PRIORITY_HIGH);
+      assertTrue(pool.updatePriority(task));
+    }
+    long priorityTime = System.nanoTime() - startTime;
+    assertEquals(rest.size(), pool.size());
+
+    //剩下的任务按优先级取出，优先级相同时先进先出
+    startTime = System.nanoTime();
+    TestTask last = null;
+    int pollNum = 0;
+    TestTask task;
+    while ((task = pool.pollTask()) != null) {
+      if (last != null && last.getPriority() == task.getPriority()) {
+        assertTrue(index(last) < index(task));
+      }
+      last = task;
+      pollNum++;
+    }
+    long pollTime = System.nanoTime() - startTime;
+    assertEquals(TASK_NUM - removed.size(), pollNum);
+    assertNull(pool.pollTask());
+
+    Log.d(TAG, TASK_NUM + "个任务，添加：" + putTime / 1000000 + "ms，查找：" + getTime / 1000000
+        + "ms，删除一半：" + removeTime / 1000000 + "ms，移到队首：" + firstTime / 1000000
+        + "ms，修改优先级：" + priorityTime / 1000000 + "ms，取出：" + pollTime / 1000000 + "ms");
+  }
+
+  private static int index(TestTask task) {
+    return Integer.parseInt(task.getKey().substring("task_".length()));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.queue.pool;
+
+import com.arialyy.aria.core.inf.AbsTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 缓存池的优先级和等待时间提升测试，使用可以控制的时间
+ */
+public class BaseCachePoolTest {
+  private static final long SECOND = 1000;
+
+  private long mNow;
+  private BaseCachePool<TestTask> mPool;
+
+  @Before public void setUp() {
+    mNow = 0;
+    mPool = new BaseCachePool<TestTask>() {
+      @Override long currentTime() {
+        return mNow;
+      }
+    };
+  }
+
+  @Test public void higherPriorityFirst() {
+    TestTask normal = put("normal", AbsTask.PRIORITY_NORMAL);
+    TestTask high = put("high", AbsTask.PRIORITY_HIGH);
+    TestTask critical = put("critical", AbsTask.PRIORITY_CRITICAL);
+    assertSame(critical, mPool.pollTask());
+    assertSame(high, mPool.pollTask());
+    assertSame(normal, mPool.pollTask());
+    assertNull(mPool.pollTask());
+  }
+
+  @Test public void agedNormalTaskRunsWhileHighTasksKeepArriving() {
+    TestTask normal = put("normal", AbsTask.PRIORITY_NORMAL);
+    int step = 0;
+    TestTask polled;
+    do {
+      mNow += 10 * SECOND;
+      put("high_" + step++, AbsTask.PRIORITY_HIGH);
+      polled = mPool.pollTask();
+    } while (polled != normal && step < 100);
+    //等待60秒后提升为HIGH，比同优先级的新任务等待更久
+    assertSame(normal, polled);
+    assertEquals(60 * SECOND, mNow);
+  }
+
+  @Test public void agedBackgroundTaskRunsWhileHighTasksKeepArriving() {
+    TestTask background = put("background", AbsTask.PRIORITY_BACKGROUND);
+    int step = 0;
+    TestTask polled;
+    do {
+      mNow += 10 * SECOND;
+      put("high_" + step++, AbsTask.PRIORITY_HIGH);
+      polled = mPool.pollTask();
+    } while (polled != background && step < 100);
+    assertSame(background, polled);
+    assertEquals(120 * SECOND, mNow);
+  }
+
+  @Test public void agingNeverPassesCritical() {
+    put("normal", AbsTask.PRIORITY_NORMAL);
+    mNow += 10 * 60 * SECOND;
+    TestTask critical = put("critical", AbsTask.PRIORITY_CRITICAL);
+    assertSame(critical, mPool.pollTask());
+    assertEquals(AbsTask.PRIORITY_HIGH, mPool.getNextPriority());
+  }
+
+  @Test public void equalAgedPriorityIsFifo() {
+    TestTask high = put("high", AbsTask.PRIORITY_HIGH);
+    mNow += 30 * SECOND;
+    TestTask normal = put("normal", AbsTask.PRIORITY_NORMAL);
+    mNow += 60 * SECOND;
+    //两个任务的优先级都是HIGH，先进入缓存池的任务先执行
+    assertSame(high, mPool.pollTask());
+    assertSame(normal, mPool.pollTask());
+  }
+
+  @Test public void putToFirstKeepsOldestWaitForAging() {
+    TestTask old = put("old", AbsTask.PRIORITY_NORMAL);
+    mNow += 50 * SECOND;
+    //让出槽位的任务回到队首，不能隐藏队列中原来任务的等待时间
+    TestTask evicted = new TestTask("evicted", AbsTask.PRIORITY_NORMAL);
+    mPool.putTaskToFirst(evicted);
+    mNow += 10 * SECOND;
+    TestTask high = put("high", AbsTask.PRIORITY_HIGH);
+    assertEquals(AbsTask.PRIORITY_HIGH, mPool.getNextPriority());
+    assertSame(evicted, mPool.pollTask());
+    assertSame(old, mPool.pollTask());
+    assertSame(high, mPool.pollTask());
+  }
+
+  @Test public void updatedPriorityKeepsEnqueueTime() {
+    TestTask first = put("first", AbsTask.PRIORITY_NORMAL);
+    mNow += 10 * SECOND;
+    TestTask bumped = put("bumped", AbsTask.PRIORITY_BACKGROUND);
+    mNow += 10 * SECOND;
+    TestTask last = put("last", AbsTask.PRIORITY_NORMAL);
+    bumped.setPriority(AbsTask.PRIORITY_NORMAL);
+    mPool.updatePriority(bumped);
+    //按进入缓存池的时间排在两个任务之间
+    assertSame(first, mPool.pollTask());
+    assertSame(bumped, mPool.pollTask());
+    assertSame(last, mPool.pollTask());
+  }
+
+  private TestTask put(String key, int priority) {
+    TestTask task = new TestTask(key, priority);
+    mPool.putTask(task);
+    return task;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.queue.pool;
+
+import com.arialyy.aria.core.inf.AbsTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 执行池的槽位和让出槽位的任务的选择测试
+ */
+public class BaseExecutePoolTest {
+  private BaseExecutePool<TestTask> mPool;
+
+  @Before public void setUp() {
+    mPool = new BaseExecutePool<>();
+  }
+
+  @Test public void fullPoolRejectsWithoutStopping() {
+    TestTask first = put("first", AbsTask.PRIORITY_NORMAL);
+    TestTask second = put("second", AbsTask.PRIORITY_NORMAL);
+    assertFalse(mPool.putTask(new TestTask("third", AbsTask.PRIORITY_CRITICAL)));
+    assertEquals(2, mPool.size());
+    assertEquals(0, first.stopNum);
+    assertEquals(0, second.stopNum);
+  }
+
+  @Test public void lowestPriorityIsEvicted() {
+    put("high", AbsTask.PRIORITY_HIGH);
+    TestTask background = put("background", AbsTask.PRIORITY_BACKGROUND);
+    assertSame(background, mPool.pollEvictTask());
+    assertNull(mPool.getTask("background"));
+    assertEquals(0, background.stopNum);
+  }
+
+  @Test public void oldestIsEvictedOnEqualPriority() {
+    TestTask first = put("first", AbsTask.PRIORITY_NORMAL);
+    put("second", AbsTask.PRIORITY_NORMAL);
+    assertSame(first, mPool.pollEvictTask());
+  }
+
+  @Test public void highestPriorityTaskIsNeverEvicted() {
+    mPool.setMaxNum(1);
+    TestTask highest = put("highest", AbsTask.PRIORITY_BACKGROUND);
+    highest.setHighestPriority(true);
+    assertNull(mPool.pollEvictTask());
+    assertSame(highest, mPool.getTask("highest"));
+  }
+
+  @Test public void lowerPriorityNewTaskDoesNotEvict() {
+    put("high", AbsTask.PRIORITY_HIGH);
+    put("normal", AbsTask.PRIORITY_NORMAL);
+    assertNull(mPool.pollEvictTask(new TestTask("background", AbsTask.PRIORITY_BACKGROUND)));
+    assertEquals(2, mPool.size());
+  }
+
+  @Test public void newTaskEvictsEqualOrLowerPriority() {
+    put("high", AbsTask.PRIORITY_HIGH);
+    TestTask normal = put("normal", AbsTask.PRIORITY_NORMAL);
+    assertSame(normal, mPool.pollEvictTask(new TestTask("new", AbsTask.PRIORITY_NORMAL)));
+  }
+
+  @Test public void highestPriorityNewTaskAlwaysEvicts() {
+    put("critical", AbsTask.PRIORITY_CRITICAL);
+    TestTask high = put("high", AbsTask.PRIORITY_HIGH);
+    TestTask highest = new TestTask("highest", AbsTask.PRIORITY_BACKGROUND);
+    highest.setHighestPriority(true);
+    assertSame(high, mPool.pollEvictTask(highest));
+  }
+
+  @Test public void shrinkOnlyChangesLimit() {
+    put("first", AbsTask.PRIORITY_NORMAL);
+    put("second", AbsTask.PRIORITY_NORMAL);
+    mPool.setMaxNum(1);
+    assertEquals(2, mPool.size());
+    assertEquals(1, mPool.getMaxNum());
+  }
+
+  private TestTask put(String key, int priority) {
+    TestTask task = new TestTask(key, priority);
+    assertTrue(mPool.putTask(task));
+    return task;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.core.queue.pool;
+
+import com.arialyy.aria.core.inf.AbsEntity;
+import com.arialyy.aria.core.inf.AbsTask;
+
+/**
+ * 测试用的任务，只记录状态，不执行下载
+ */
+class TestTask extends AbsTask<AbsEntity> {
+  private final String mKey;
+  boolean isRunning = false;
+  int stopNum = 0;
+
+  TestTask(String key, int priority) {
+    mKey = key;
+    setPriority(priority);
+  }
+
+  void setHighestPriority(boolean isHighestPriority) {
+    isHeighestTask = isHighestPriority;
+  }
+
+  @Override public String getKey() {
+    return mKey;
+  }
+
+  @Override public boolean isRunning() {
+    return isRunning;
+  }
+
+  @Override public void start() {
+    isRunning = true;
+  }
+
+  @Override public void stop() {
+    isRunning = false;
+    stopNum++;
+  }
+
+  @Override public void cancel() {
+    isRunning = false;
+  }
+
+  @Override public String toString() {
+    return mKey;
+  }
+}
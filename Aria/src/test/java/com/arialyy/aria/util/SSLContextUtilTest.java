@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 AriaLyy(https://github.com/AriaLyy/Aria)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.arialyy.aria.util;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * SSLContext缓存测试
+ */
+public class SSLContextUtilTest {
+  @Test public void socketFactoryIsCached() {
+    SSLSocketFactory factory = SSLContextUtil.getSocketFactory(null, null);
+    assertNotNull(factory);
+    assertSame(factory, SSLContextUtil.getSocketFactory(null, null));
+    assertSame(SSLContextUtil.getDefaultSLLContext(), SSLContextUtil.getDefaultSLLContext());
+  }
+
+  @Test public void missingCaUsesDefaultContext() {
+    assertNull(SSLContextUtil.getSSLContext(null, "ca.cer"));
+    assertNull(SSLContextUtil.getSSLContext("ca", null));
+  }
+
+  @Test public void sessionCacheIsEnabled() {
+    SSLContext context = SSLContextUtil.getDefaultSLLContext();
+    assertEquals(64, context.getClientSessionContext().getSessionCacheSize());
+    assertEquals(60 * 60, context.getClientSessionContext().getSessionTimeout());
+  }
+}
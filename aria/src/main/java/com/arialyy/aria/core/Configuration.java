@@ -16,6 +16,8 @@
 package com.arialyy.aria.core;
 
 import android.text.TextUtils;
+import com.arialyy.aria.core.download.downloader.HttpConnectionPool;
+import com.arialyy.aria.core.queue.DownloadGroupTaskQueue;
 import com.arialyy.aria.core.queue.DownloadTaskQueue;
 import com.arialyy.aria.util.CommonUtil;
 import java.io.File;
@@ -249,6 +251,46 @@ class Configuration {
      */
     double msxSpeed = 0.0;
 
+    /**
+     * 设置所有下载任务的总下载速度，单位：kb, 为0表示不限速
+     */
+    double globalMaxSpeed = 0.0;
+
+    /**
+     * 设置每个任务组的最大下载速度，单位：kb, 为0表示不限速
+     */
+    double groupMaxSpeed = 0.0;
+
+    /**
+     * 下载过程中保存断点的时间间隔，单位为毫秒，默认2000毫秒，为0表示不按时间保存
+     */
+    int checkpointInterval = 2000;
+
+    /**
+     * 下载过程中每下载多少数据保存一次断点，单位为byte，默认4m，为0表示不按长度保存
+     */
+    int checkpointSize = 4 * 1024 * 1024;
+
+    /**
+     * 是否使用FileChannel写文件，为false时使用"rwd"模式的RandomAccessFile，每次写入都会同步到磁盘
+     */
+    boolean nioWrite = true;
+
+    /**
+     * 每个主机同时下载的连接数，默认为8，所有任务共用
+     */
+    int maxConnectionsPerHost = 8;
+
+    /**
+     * 单任务分配执行槽位的权重，默认为1；单任务和任务组都在等待时，按权重比例分配下载队列的执行槽位
+     */
+    int taskWeight = 1;
+
+    /**
+     * 任务组分配执行槽位的权重，默认为1
+     */
+    int groupWeight = 1;
+
     public int getIOTimeOut() {
       return iOTimeOut;
     }
@@ -264,6 +306,28 @@ class Configuration {
       return this;
     }
 
+    public double getGlobalMaxSpeed() {
+      return globalMaxSpeed;
+    }
+
+    public DownloadConfig setGlobalMaxSpeed(double globalMaxSpeed) {
+      this.globalMaxSpeed = globalMaxSpeed;
+      saveKey("globalMaxSpeed", String.valueOf(globalMaxSpeed));
+      DownloadTaskQueue.getInstance().setGlobalMaxSpeed(globalMaxSpeed);
+      return this;
+    }
+
+    public double getGroupMaxSpeed() {
+      return groupMaxSpeed;
+    }
+
+    public DownloadConfig setGroupMaxSpeed(double groupMaxSpeed) {
+      this.groupMaxSpeed = groupMaxSpeed;
+      saveKey("groupMaxSpeed", String.valueOf(groupMaxSpeed));
+      DownloadGroupTaskQueue.getInstance().setMaxSpeed(groupMaxSpeed);
+      return this;
+    }
+
     public DownloadConfig setIOTimeOut(int iOTimeOut) {
       this.iOTimeOut = iOTimeOut;
       saveKey("iOTimeOut", iOTimeOut + "");
@@ -304,6 +368,70 @@ class Configuration {
       return threadNum;
     }
 
+    public int getCheckpointInterval() {
+      return checkpointInterval;
+    }
+
+    public DownloadConfig setCheckpointInterval(int checkpointInterval) {
+      this.checkpointInterval = checkpointInterval;
+      saveKey("checkpointInterval", checkpointInterval + "");
+      return this;
+    }
+
+    public boolean isNioWrite() {
+      return nioWrite;
+    }
+
+    public DownloadConfig setNioWrite(boolean nioWrite) {
+      this.nioWrite = nioWrite;
+      saveKey("nioWrite", nioWrite + "");
+      return this;
+    }
+
+    public int getMaxConnectionsPerHost() {
+      return maxConnectionsPerHost;
+    }
+
+    public DownloadConfig setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+      saveKey("maxConnectionsPerHost", maxConnectionsPerHost + "");
+      AriaManager.getInstance(AriaManager.APP)
+          .getExecutorManager()
+          .setMaxConnectionsPerHost(maxConnectionsPerHost);
+      HttpConnectionPool.getInstance().setMaxRequestsPerHost(maxConnectionsPerHost);
+      return this;
+    }
+
+    public int getTaskWeight() {
+      return taskWeight;
+    }
+
+    public DownloadConfig setTaskWeight(int taskWeight) {
+      this.taskWeight = Math.max(1, taskWeight);
+      saveKey("taskWeight", this.taskWeight + "");
+      return this;
+    }
+
+    public int getGroupWeight() {
+      return groupWeight;
+    }
+
+    public DownloadConfig setGroupWeight(int groupWeight) {
+      this.groupWeight = Math.max(1, groupWeight);
+      saveKey("groupWeight", this.groupWeight + "");
+      return this;
+    }
+
+    public int getCheckpointSize() {
+      return checkpointSize;
+    }
+
+    public DownloadConfig setCheckpointSize(int checkpointSize) {
+      this.checkpointSize = checkpointSize;
+      saveKey("checkpointSize", checkpointSize + "");
+      return this;
+    }
+
     private DownloadConfig() {
       loadConfig();
     }